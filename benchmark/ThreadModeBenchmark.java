@@ -0,0 +1,288 @@
+package benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import di.DI;
+import flag.Flag;
+import helper.Config;
+import helper.Logger;
+import helper.Threads;
+import network.Connect;
+import network.Listen;
+import network.Ping;
+
+/**
+ * @formatter:off
+ * Compares platform and virtual thread connection handling
+ * Connects many clients to a Listen in the same process, broadcasts to them every tick
+ * and reports memory footprint and context switches for each mode
+ * Without --mode both modes are run in separate processes so their footprint does not mix
+ * Context switches are read from /proc so they are only reported on Linux
+ * Clients ping like real ones so they are not reaped by Config.idleTimeout,
+ * fails if not every broadcast measured was delivered to every client
+ * The virtual mode is skipped on runtimes which can not start virtual threads (e.g. Java 17)
+ * @formatter:on
+ */
+public class ThreadModeBenchmark {
+	private static final String[] modes = { "platform", "virtual" };
+
+	public static void main(final String[] args) throws Exception {
+		final Map<String, Flag.Entry> commands = new HashMap<>();
+		commands.put("--mode", new Flag.Entry("platform or virtual, runs both if omitted", false, false, null));
+		commands.put("--clients", new Flag.Entry("number of connected clients", false, false, "1000"));
+		commands.put("--ticks", new Flag.Entry("number of broadcasts measured", false, false, "200"));
+		commands.put("--port", new Flag.Entry("first port to listen on", false, false,
+				String.valueOf(Config.defaultPort + 1)));
+		final Optional<Map<String, String>> parsedOrError = new Flag(commands).parse(args);
+		if (parsedOrError.isEmpty()) {
+			return;
+		}
+		final Map<String, String> parsed = parsedOrError.get();
+
+		if (parsed.containsKey("--mode")) {
+			run(parsed.get("--mode"), Integer.parseInt(parsed.get("--clients")),
+					Integer.parseInt(parsed.get("--ticks")), Integer.parseInt(parsed.get("--port")));
+			System.exit(0);
+		}
+
+		// each mode in its own process
+		int port = Integer.parseInt(parsed.get("--port"));
+		for (final String mode : modes) {
+			final List<String> command = new ArrayList<>();
+			command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(ThreadModeBenchmark.class.getName());
+			command.add("--mode");
+			command.add(mode);
+			command.add("--clients");
+			command.add(parsed.get("--clients"));
+			command.add("--ticks");
+			command.add(parsed.get("--ticks"));
+			command.add("--port");
+			command.add(String.valueOf(port++));
+			new ProcessBuilder(command).inheritIO().start().waitFor();
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Runs benchmark in the current process with given thread mode
+	 * @param mode platform or virtual
+	 * @param clientCount
+	 * @param ticks
+	 * @param port
+	 * @throws Exception
+	 * @formatter:on
+	 */
+	private static void run(final String mode, final int clientCount, final int ticks, final int port)
+			throws Exception {
+		DI.init(Config.defaultConfigFileName);
+		// one line per connection would drown the results
+		DI.put(new Logger(OutputStream.nullOutputStream()));
+		final Config config = (Config) DI.get(Config.class);
+		config.virtualThreads = mode.equals("virtual");
+
+		// isVirtual is only reliable after a thread was started
+		Threads.start(() -> {
+		}).join();
+		if (config.virtualThreads && !Threads.isVirtual()) {
+			System.out.printf("mode %s skipped: virtual threads can not be used by this runtime, "
+					+ "there is nothing to compare platform threads with\n", mode);
+			return;
+		}
+
+		final Sample idle = Sample.take();
+
+		// clients time out after a second without data => keep broadcasting while
+		// connecting
+		final Listen listen = new Listen();
+		// clients only count as connected once the welcome arrived, refused handshakes are retried
+		listen.listen(port, connection -> {
+			try {
+				listen.send(connection.frameWriter, "welcome");
+			} catch (final IOException e) {
+				return false;
+			}
+			return true;
+		}, (connection, object) -> {
+		}, connection -> {
+		});
+		final AtomicLong broadcasts = new AtomicLong();
+		final Thread broadcaster = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					listen.send(broadcasts.incrementAndGet());
+					Thread.sleep(config.tickRate);
+				} catch (final IOException e) {
+					// a client timed out, it is counted as not received
+				} catch (final InterruptedException e) {
+					break;
+				}
+			}
+		});
+		broadcaster.start();
+
+		final AtomicLong received = new AtomicLong();
+		final List<Connect> connects = new CopyOnWriteArrayList<>();
+		// same heartbeat as Client.ping
+		final Thread pinger = new Thread(() -> {
+			final long pingRate = Math.min(config.pingRate, config.idleTimeout / 2);
+			while (!Thread.currentThread().isInterrupted()) {
+				for (final Connect connect : connects) {
+					try {
+						connect.send(new Ping(System.currentTimeMillis()));
+					} catch (final IOException e) {
+						// its deliveries are missing, reported below
+					}
+				}
+				try {
+					Thread.sleep(pingRate);
+				} catch (final InterruptedException e) {
+					break;
+				}
+			}
+		});
+		pinger.start();
+		for (int i = 0; i < clientCount; i++) {
+			final Connect connect = connect(port, received);
+			if (connect == null) {
+				break;
+			}
+			connects.add(connect);
+		}
+
+		final Sample connected = Sample.take();
+		final long receivedBefore = received.get();
+		final long broadcastsBefore = broadcasts.get();
+		Thread.sleep(ticks * config.tickRate);
+		final Sample steady = Sample.take();
+		final long messages = received.get() - receivedBefore;
+		final long sent = broadcasts.get() - broadcastsBefore;
+
+		broadcaster.interrupt();
+		broadcaster.join();
+		pinger.interrupt();
+		pinger.join();
+		for (final Connect connect : connects) {
+			connect.close();
+		}
+		listen.close();
+
+		System.out.printf("mode %s\n", mode);
+		System.out.printf("  clients connected:       %d\n", connects.size());
+		System.out.printf("  threads:                 %d\n", connected.threads - idle.threads);
+		System.out.printf("  heap used:               %d KiB\n", (connected.heap - idle.heap) / 1024);
+		System.out.printf("  resident set:            %s\n",
+				idle.rss < 0 ? "n/a" : String.format("%d KiB", connected.rss - idle.rss));
+		System.out.printf("  broadcasts, deliveries:  %d, %d\n", sent, messages);
+		// broadcasts on the edges of the measurement may be delivered outside of it
+		final long expected = Math.max(0, sent - 2) * connects.size();
+		final long contextSwitches = steady.contextSwitches - connected.contextSwitches;
+		System.out.printf("  context switches:        %s\n",
+				idle.contextSwitches < 0 ? "n/a" : String.valueOf(contextSwitches));
+		if (idle.contextSwitches >= 0 && messages != 0) {
+			System.out.printf("  context switches / msg:  %.3f\n", (double) contextSwitches / messages);
+		}
+		if (messages < expected) {
+			throw new IllegalStateException(
+					String.format("mode %s delivered %d of at least %d expected messages", mode, messages, expected));
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Connects a client, retries while the server refuses it because of too many pending handshakes
+	 * @param port
+	 * @param received counts the broadcasts delivered
+	 * @return null if it could not connect
+	 * @throws InterruptedException
+	 * @formatter:on
+	 */
+	private static Connect connect(final int port, final AtomicLong received) throws InterruptedException {
+		for (int attempt = 0; attempt < 100; attempt++) {
+			final Connect connect = new Connect();
+			if (connect.connect(connection -> {
+				try {
+					return "welcome".equals(connect.receive());
+				} catch (ClassNotFoundException | IOException e) {
+					return false;
+				}
+			}, object -> received.incrementAndGet(), Config.defaultIP, port)) {
+				return connect;
+			}
+			Thread.sleep(10);
+		}
+		return null;
+	}
+
+	/**
+	 * Resource usage of the current process at a moment
+	 */
+	private static class Sample {
+		public long heap;
+		// KiB
+		public long rss;
+		public long threads;
+		public long contextSwitches;
+
+		/**
+		 * @formatter:off
+		 * Collects garbage then measures resource usage
+		 * @return
+		 * @formatter:on
+		 */
+		public static Sample take() {
+			System.gc();
+			final Runtime runtime = Runtime.getRuntime();
+
+			final Sample sample = new Sample();
+			sample.heap = runtime.totalMemory() - runtime.freeMemory();
+			sample.threads = Thread.activeCount();
+			sample.rss = readStatus(Path.of("/proc/self/status"), "VmRSS:");
+			sample.contextSwitches = -1;
+			try (Stream<Path> tasks = Files.list(Path.of("/proc/self/task"))) {
+				sample.contextSwitches = tasks.mapToLong(task -> {
+					final Path status = task.resolve("status");
+					return Math.max(0, readStatus(status, "voluntary_ctxt_switches:"))
+							+ Math.max(0, readStatus(status, "nonvoluntary_ctxt_switches:"));
+				}).sum();
+			} catch (final IOException e) {
+				// not Linux
+			}
+			return sample;
+		}
+
+		/**
+		 * @formatter:off
+		 * Reads numeric field from a /proc status file
+		 * @param path
+		 * @param field name of the field including colon
+		 * @return -1 if not available
+		 * @formatter:on
+		 */
+		private static long readStatus(final Path path, final String field) {
+			try {
+				for (final String line : Files.readAllLines(path)) {
+					if (line.startsWith(field)) {
+						return Long.parseLong(line.substring(field.length()).trim().split("\\s+")[0]);
+					}
+				}
+			} catch (final IOException | NumberFormatException e) {
+				// task exited or not Linux
+			}
+			return -1;
+		}
+	}
+}
@@ -1,12 +1,20 @@
 package client;
 
 import java.io.IOException;
+import java.net.SocketException;
+import java.util.Timer;
+import java.util.TimerTask;
 
 import di.DI;
 import helper.Config;
 import helper.Logger;
 import network.Connect;
+import network.KeyState;
 import network.Network.Connection;
+import network.Ping;
+import network.Pong;
+import network.Resume;
+import user.InputMailbox.Input;
 import user.User;
 
 public class Client {
@@ -15,8 +23,19 @@ public class Client {
 
 	private final UserClient userClient = new UserClient();
 	private Connect connect;
+	// writes inputs and pings so the tick never waits for the connection
+	private InputSender inputSender;
+	// samples, predicts and sends input every tick
+	private Timer tickTimer;
+	// draws at frame rate independently from receiving
+	private Timer renderTimer;
 	private ClientModel model = new ClientModel();
-	private final GUI gui = new GUI(this::connect, this::disconnect, this::send, userClient.keys);
+	private final Prediction prediction = new Prediction();
+	private final SnapshotMerger snapshotMerger = new SnapshotMerger();
+	private final SnapshotHandoff snapshotHandoff = new SnapshotHandoff();
+	private final SnapshotBuffer snapshotBuffer = new SnapshotBuffer();
+	private final Clock clock = new Clock();
+	private final GUI gui = new GUI(this::connect, this::disconnect, userClient.keys);
 
 	/**
 	 * @formatter:off
@@ -28,12 +47,24 @@ public class Client {
 	public boolean connect() {
 		userClient.name = config.name;
 		model.active = true;
+		model.sequenceReconciled = -1;
+		model.datagramConfirmed = false;
+		model.pingSent = 0;
+		// server continues with the inputs of the resumed player
+		if (!model.resumable) {
+			userClient.sequence = 0;
+		}
+		prediction.clear();
+		snapshotMerger.clear();
+		snapshotHandoff.clear();
+		snapshotBuffer.clear();
+		clock.clear();
 
 		// connect
 		connect = new Connect();
-		return connect.connect((final Connection connection) -> {
+		final boolean connected = connect.connect((final Connection connection) -> {
 			try {
-				handshake();
+				handshake(connection);
 			} catch (ClassNotFoundException | IOException e) {
 				logger.println("Couldn't handshake:");
 				logger.println(e);
@@ -46,19 +77,75 @@ public class Client {
 		}, (final Object object) -> {
 			receive(object);
 		}, config.ip, config.port);
+
+		if (!connected) {
+			return false;
+		}
+
+		inputSender = new InputSender(connect, this::connectionLost);
+
+		if (config.udp) {
+			connectDatagram();
+		}
+
+		tickTimer = new Timer();
+		tickTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				tick();
+			}
+		}, 0, config.tickRate);
+
+		renderTimer = new Timer();
+		renderTimer.scheduleAtFixedRate(new TimerTask() {
+			@Override
+			public void run() {
+				render();
+			}
+		}, 0, 1000 / config.frameRate);
+		return true;
+	}
+
+	/**
+	 * @formatter:off
+	 * Starts receiving WorldClients in datagrams
+	 * Until the first one arrives inputs are sent both over connection and in datagrams
+	 * so server learns our address
+	 * @formatter:on
+	 */
+	private void connectDatagram() {
+		try {
+			connect.connectDatagram((final Object object) -> {
+				model.datagramConfirmed = true;
+				receive(object);
+			}, WorldClient.class);
+			if (model.dictionary != null) {
+				connect.getDatagram().compress(model.dictionary);
+			}
+		} catch (final SocketException e) {
+			logger.println("Couldn't create datagram socket, using only connection");
+		}
 	}
 
 	/**
 	 * @formatter:off
 	 * Handshake used at connecting
+	 * Asks for our player back after the connection was lost, server starts a new one if it can not
+	 * Compresses the connection if server sends a dictionary
+	 * @param connection
 	 * @return boolean success
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 * @formatter:on
 	 */
-	private boolean handshake() throws IOException, ClassNotFoundException {
+	private boolean handshake(final Connection connection) throws IOException, ClassNotFoundException {
 		// send name
-		connect.send(userClient.name);
+		if (model.resumable && userClient.auth != null) {
+			connect.send(new Resume(userClient.auth, userClient.name));
+		} else {
+			connect.send(userClient.name);
+		}
+		model.resumable = false;
 
 		// receive new name, auth
 		final User user = (User) connect.receive();
@@ -68,18 +155,36 @@ public class Client {
 		userClient.auth = user.auth;
 		userClient.name = user.name;
 
+		// compression
+		model.dictionary = (byte[]) connect.receive();
+		if (model.dictionary != null) {
+			connection.compress(model.dictionary);
+		}
+
 		return true;
 	}
 
 	/**
 	 * @formatter:off
 	 * Function called when connection receives new data
+	 * WorldClients are merged and handed off to the renderer, so receiving is never blocked by rendering
 	 * @param object Received data supplied by connection
 	 * @formatter:on
 	 */
 	private void receive(final Object object) {
+		if (object instanceof Pong) {
+			final Pong pong = (Pong) object;
+			clock.sample(pong.clientTime, pong.serverTime, System.currentTimeMillis());
+			return;
+		}
+
 		final WorldClient worldClient = (WorldClient) object;
-		gui.draw.setWorldClient(worldClient);
+		// datagrams can be reordered or duplicated
+		if (!snapshotMerger.merge(worldClient)) {
+			return;
+		}
+		snapshotHandoff.publish(worldClient);
+
 		if (worldClient.state != User.State.Playing) {
 			// otherwise this would wait for a deregister which would happened after this
 			// line finished
@@ -93,26 +198,168 @@ public class Client {
 					}
 				}
 			}).start();
-		} else {
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Draws WorldClient interpolated to a slightly delayed server time so others move smoothly
+	 * Only the newest WorldClient received since the previous frame is buffered,
+	 * the ones in between were dropped by the handoff
+	 * Nothing is drawn until the clock is synchronised
+	 * @formatter:on
+	 */
+	private void render() {
+		// only the sequence is read, elements are guarded by the lock
+		final WorldClient received = snapshotHandoff.take();
+		if (received != null) {
+			snapshotBuffer.add(received, received.time);
+		}
+
+		if (!clock.isSynced()) {
+			return;
+		}
+
+		synchronized (model) {
+			final WorldClient worldClient = snapshotBuffer
+					.interpolate(clock.toServer(System.currentTimeMillis()) - config.interpolationDelay);
+			if (worldClient == null) {
+				return;
+			}
+			gui.draw.setWorldClient(worldClient);
 			gui.draw.render();
 		}
 	}
 
 	/**
 	 * @formatter:off
-	 * Updates server about current state (userClient)
+	 * Reconciles prediction with the latest WorldClient
+	 * Samples pressed keys as a new input, applies it locally and hands it to the sender
+	 * Server applies one input per tick so this runs every tick
+	 * Pings server every tick until the clock settles then every Config.pingRate
+	 * Notices if the server stopped sending
+	 * @formatter:on
+	 */
+	private void tick() {
+		final KeyState keyState;
+		synchronized (model) {
+			final WorldClient worldClient = snapshotHandoff.latest();
+			if (worldClient != null && worldClient.sequence != model.sequenceReconciled) {
+				prediction.reconcile(worldClient);
+				model.sequenceReconciled = worldClient.sequence;
+			}
+
+			userClient.sequence++;
+			keyState = new KeyState(userClient.keys, userClient.sequence, null);
+			snapshotMerger.acknowledge(keyState);
+
+			prediction.step(new Input(keyState.keys, keyState.sequence));
+		}
+
+		// server is gone or stopped sending
+		if (!connect.isReceiving()) {
+			logger.println("Nothing received from server");
+			connectionLost();
+			return;
+		}
+
+		send(keyState);
+		ping();
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends a Ping over the connection if one is due
+	 * Pings are also the heartbeat: when inputs go in datagrams nothing else keeps the connection
+	 * from being reaped by the server after Config.idleTimeout
+	 * @formatter:on
+	 */
+	private void ping() {
+		final long now = System.currentTimeMillis();
+		final long pingRate = Math.min(config.pingRate, config.idleTimeout / 2);
+		if (clock.isSettled() && now - model.pingSent < pingRate) {
+			return;
+		}
+
+		inputSender.offerControl(new Ping(now));
+		model.pingSent = now;
+	}
+
+	/**
+	 * @formatter:off
+	 * Updates server about current state
+	 * Over the connection the server knows who we are, so only keys and sequence are sent
 	 * If can not send it will auto disconnect
+	 * @param keyState input to be sent
 	 * @formatter:on
 	 */
-	private void send() {
+	private void send(final KeyState keyState) {
+		if (model.datagramConfirmed) {
+			sendDatagram(keyState);
+			return;
+		}
+
+		inputSender.offerInput(keyState);
+
+		// server ignores inputs already received
+		if (config.udp) {
+			sendDatagram(keyState);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Updates server about current state in a datagram
+	 * Datagrams carry auth as the server learns our address from them
+	 * @param keyState input to be sent
+	 * @formatter:on
+	 */
+	private void sendDatagram(final KeyState keyState) {
 		try {
-			connect.send((User) userClient);
+			final KeyState keyStateAuth = new KeyState(keyState.keys, keyState.sequence, userClient.auth);
+			keyStateAuth.ack = keyState.ack;
+			keyStateAuth.received = keyState.received;
+			connect.sendDatagram(keyStateAuth);
 		} catch (final IOException e) {
-			logger.println("Client couldn't send update");
-			disconnect();
+			logger.println("Client couldn't send datagram update");
 		}
 	}
 
+	/**
+	 * @formatter:off
+	 * Disconnects after the connection was lost while playing
+	 * With autoreconnect it tries to resume until Config.resumeGrace is over
+	 * @formatter:on
+	 */
+	private void connectionLost() {
+		// game end is handled by receive
+		final WorldClient latest = snapshotHandoff.latest();
+		if (!model.active || latest != null && latest.state != User.State.Playing) {
+			return;
+		}
+		disconnect();
+		model.resumable = true;
+		if (!config.autoreconnect) {
+			return;
+		}
+
+		// tick thread is cancelled by disconnect
+		new Thread(() -> {
+			final long deadline = System.currentTimeMillis() + config.resumeGrace;
+			while (!connect()) {
+				if (System.currentTimeMillis() > deadline) {
+					logger.println("Failed to autoreconnect");
+					return;
+				}
+				try {
+					Thread.sleep(500);
+				} catch (final InterruptedException e) {
+					return;
+				}
+			}
+		}).start();
+	}
+
 	/**
 	 * @formatter:off
 	 * Disconnects from server
@@ -125,11 +372,18 @@ public class Client {
 				return;
 			}
 
-			logger.println("Disconnecting...");
+			logger.printf("Disconnecting...dropped %d WorldClients before they were drawn\n",
+					snapshotHandoff.getDropped());
 
 			model.active = false;
 
+			// no frame is being drawn after this
+			synchronized (model) {
+				tickTimer.cancel();
+				renderTimer.cancel();
+			}
 			gui.setState(GUI.State.Lobby);
+			inputSender.close();
 			try {
 				connect.close();
 			} catch (final Exception e) {
@@ -5,4 +5,24 @@ public class ClientModel {
 	 * Client is connected to the server
 	 */
 	public boolean active;
+	/**
+	 * Sequence of the last WorldClient prediction was reconciled with
+	 */
+	public long sequenceReconciled = -1;
+	/**
+	 * Server sends WorldClients in datagrams so inputs can be sent in datagrams too
+	 */
+	public volatile boolean datagramConfirmed;
+	/**
+	 * Local time the last Ping was sent at
+	 */
+	public long pingSent;
+	/**
+	 * Compression dictionary received in handshake, null if not compressed
+	 */
+	public byte[] dictionary;
+	/**
+	 * Connection was lost while playing, the next connect asks the server for the same player
+	 */
+	public volatile boolean resumable;
 }
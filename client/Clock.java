@@ -0,0 +1,123 @@
+package client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import di.DI;
+import helper.Config;
+
+/**
+ * @formatter:off
+ * Estimates the offset of the server's clock and the round trip time from Ping/Pong samples
+ * Offset is taken from the sample with the lowest round trip time of the last Config.clockSamples
+ * as a delayed sample is also the most asymmetric one
+ * Round trip time is smoothed over all samples
+ * Thread safe
+ * @formatter:on
+ */
+public class Clock {
+	private static Config config = (Config) DI.get(Config.class);
+
+	private static class Sample {
+		public final long offset;
+		public final long rtt;
+
+		public Sample(final long offset, final long rtt) {
+			this.offset = offset;
+			this.rtt = rtt;
+		}
+	}
+
+	// oldest first
+	private final Deque<Sample> samples = new ArrayDeque<>();
+	private long offset = 0;
+	private double rtt = 0;
+
+	/**
+	 * @formatter:off
+	 * Adds a sample
+	 * @param clientSent local time the Ping was sent at
+	 * @param serverTime server time the Ping was received at
+	 * @param clientReceived local time the Pong was received at
+	 * @formatter:on
+	 */
+	public synchronized void sample(final long clientSent, final long serverTime, final long clientReceived) {
+		final long rttSample = clientReceived - clientSent;
+		if (rttSample < 0) {
+			return;
+		}
+
+		// server received it halfway
+		final Sample sample = new Sample(serverTime - (clientSent + clientReceived) / 2, rttSample);
+		rtt = samples.isEmpty() ? rttSample : rtt + (rttSample - rtt) / 8;
+		samples.addLast(sample);
+		if (samples.size() > config.clockSamples) {
+			samples.removeFirst();
+		}
+
+		Sample best = sample;
+		for (final Sample candidate : samples) {
+			if (candidate.rtt < best.rtt) {
+				best = candidate;
+			}
+		}
+		offset = best.offset;
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether there is at least one sample
+	 * @return
+	 * @formatter:on
+	 */
+	public synchronized boolean isSynced() {
+		return !samples.isEmpty();
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether the filter window is full so samples can be taken less frequently
+	 * @return
+	 * @formatter:on
+	 */
+	public synchronized boolean isSettled() {
+		return samples.size() >= config.clockSamples;
+	}
+
+	/**
+	 * @formatter:off
+	 * Converts local time to server time
+	 * @param localTime
+	 * @return
+	 * @formatter:on
+	 */
+	public synchronized long toServer(final long localTime) {
+		return localTime + offset;
+	}
+
+	/**
+	 * @formatter:off
+	 * Server clock minus local clock (ms)
+	 * @return
+	 * @formatter:on
+	 */
+	public synchronized long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @formatter:off
+	 * Smoothed round trip time (ms)
+	 * @return
+	 * @formatter:on
+	 */
+	public synchronized double getRtt() {
+		return rtt;
+	}
+
+	public synchronized void clear() {
+		samples.clear();
+		offset = 0;
+		rtt = 0;
+	}
+}
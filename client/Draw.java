@@ -1,10 +1,16 @@
 package client;
 
+import java.awt.AlphaComposite;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Image;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
 
 import di.DI;
 import helper.Config;
@@ -14,14 +20,36 @@ import helper.Position;
 import user.User;
 import world.element.movable.Movable;
 import world.element.movable.Player;
+import world.element.unmovable.Box;
 import world.element.unmovable.Unmovable;
+import world.element.unmovable.Wall;
 
 public class Draw extends Canvas {
 	private static Config config = (Config) DI.get(Config.class);
 	private static Logger logger = (Logger) DI.get(Logger.class);
 
+	private static final Color colorBackground = new Color(30, 30, 30);
+	private static final Color colorDead = new Color(255, 0, 0);
+	private static final Color colorWon = new Color(255, 255, 0);
+
 	private WorldClient worldClient;
 	private BufferStrategy strategy;
+	// created when first drawn as it needs the graphics configuration
+	private SpriteAtlas spriteAtlas;
+	// position which should be deduced from all points to centralize non origin points, reused every frame
+	private final Position offset = new Position(0, 0);
+	// walls and boxes around the view pre-rendered at their size, null until first drawn
+	private BufferedImage staticLayer;
+	// world position of the top left corner of staticLayer
+	private final Position staticLayerOrigin = new Position(0, 0);
+	// identifies the walls and boxes staticLayer was drawn from
+	private long staticLayerSignature;
+	// unmovables the following were computed from, the list is shared by the frames drawn from the same WorldClient
+	private List<Unmovable> unmovablesSorted;
+	// identifies the walls and boxes in unmovablesSorted
+	private long staticSignature;
+	// unmovables not in the static layer
+	private final List<Unmovable> dynamics = new ArrayList<>();
 
 	/**
 	 * @formatter:off
@@ -63,6 +91,7 @@ public class Draw extends Canvas {
 	 * @formatter:off
 	 * Renders the current state
 	 * Draws gameend screen if win state is on worldClient
+	 * Only what is in the window is drawn, nothing is allocated unless the static layer or the atlas changes
 	 * @param graphics
 	 * @formatter:on
 	 */
@@ -85,10 +114,10 @@ public class Draw extends Canvas {
 		}
 
 		// offset
-		final Position offset = new Position(-playerMe.position.y + config.windowHeight / 2 - config.squaresize / 2,
-				-playerMe.position.x + config.windowWidth / 2 - config.squaresize / 2);
+		offset.y = -playerMe.position.y + config.windowHeight / 2 - config.squaresize / 2;
+		offset.x = -playerMe.position.x + config.windowWidth / 2 - config.squaresize / 2;
 
-		clear(graphics, 30, 30, 30);
+		clear(graphics, colorBackground);
 
 		exit(graphics, offset);
 
@@ -113,40 +142,57 @@ public class Draw extends Canvas {
 	 * @formatter:on
 	 */
 	private void gameEnd(final Graphics graphics) {
-		int r = 0;
-		int g = 0;
-		int b = 0;
 		switch (worldClient.state) {
 			case Dead:
-				r = 255;
-				g = 0;
-				b = 0;
+				clear(graphics, colorDead);
 				break;
 			case Won:
-				r = 255;
-				g = 255;
-				b = 0;
+				clear(graphics, colorWon);
 				break;
 			default:
 				throw new RuntimeException();
 		}
-		clear(graphics, r, g, b);
 	}
 
 	/**
 	 * @formatter:off
-	 * Clears with specified colors
+	 * Clears with specified color
 	 * @param graphics
-	 * @param r
-	 * @param g
-	 * @param b
+	 * @param color
 	 * @formatter:on
 	 */
-	private void clear(final Graphics graphics, final int r, final int g, final int b) {
-		graphics.setColor(new Color(r, g, b));
+	private void clear(final Graphics graphics, final Color color) {
+		graphics.setColor(color);
 		graphics.fillRect(0, 0, config.windowWidth, config.windowHeight);
 	}
 
+	/**
+	 * @formatter:off
+	 * Returns the atlas frames are drawn from
+	 * @return
+	 * @formatter:on
+	 */
+	private SpriteAtlas spriteAtlas() {
+		if (spriteAtlas == null) {
+			spriteAtlas = new SpriteAtlas(getGraphicsConfiguration());
+		}
+		return spriteAtlas;
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether a square at screen position y, x is in the window
+	 * @param y
+	 * @param x
+	 * @param margin extra space drawn around the square (e.g. name)
+	 * @return
+	 * @formatter:on
+	 */
+	private static boolean isVisible(final int y, final int x, final int margin) {
+		return y + config.squaresize + margin > 0 && x + config.squaresize + margin > 0
+				&& y - margin < config.windowHeight && x - margin < config.windowWidth;
+	}
+
 	/**
 	 * @formatter:off
 	 * Renders exit
@@ -159,24 +205,131 @@ public class Draw extends Canvas {
 			return;
 		}
 
-		final Image image = worldClient.exit.animation.getImage();
-		final Position position = worldClient.exit.position.shift(offset);
-		graphics.drawImage(image, position.x, position.y, config.squaresize, config.squaresize, null);
+		final int y = worldClient.exit.position.y + offset.y;
+		final int x = worldClient.exit.position.x + offset.x;
+		if (isVisible(y, x, 0)) {
+			spriteAtlas().draw(graphics, worldClient.exit.animation, false, y, x);
+		}
 	}
 
 	/**
 	 * @formatter:off
 	 * Renders unmovables
+	 * Walls and boxes come from the static layer in a single unscaled draw, only the others are drawn one by one
 	 * @param graphics
 	 * @param offset position which should be deduced from all points to centralize non origin points
 	 * @formatter:on
 	 */
 	public void unmovable(final Graphics graphics, final Position offset) {
-		for (final Unmovable unmovable : worldClient.unmovables) {
-			final Image image = unmovable.animation.getImage();
-			final Position position = unmovable.position.shift(offset);
-			graphics.drawImage(image, position.x, position.y, config.squaresize, config.squaresize, null);
+		sort();
+		staticLayer(offset);
+		graphics.drawImage(staticLayer, staticLayerOrigin.x + offset.x, staticLayerOrigin.y + offset.y, null);
+
+		for (int i = 0; i < dynamics.size(); i++) {
+			final Unmovable unmovable = dynamics.get(i);
+			final int y = unmovable.position.y + offset.y;
+			final int x = unmovable.position.x + offset.x;
+			if (isVisible(y, x, 0)) {
+				spriteAtlas().draw(graphics, unmovable.animation, false, y, x);
+			}
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Separates unmovables into static and dynamic ones once per WorldClient received
+	 * so frames in between do not go through all of them
+	 * @formatter:on
+	 */
+	private void sort() {
+		final List<Unmovable> unmovables = worldClient.unmovables;
+		if (unmovables == unmovablesSorted) {
+			return;
+		}
+		unmovablesSorted = unmovables;
+
+		dynamics.clear();
+		long signature = 1;
+		for (int i = 0; i < unmovables.size(); i++) {
+			final Unmovable unmovable = unmovables.get(i);
+			if (isStatic(unmovable)) {
+				signature = 31 * signature + unmovable.id;
+				signature = 31 * signature + unmovable.position.y;
+				signature = 31 * signature + unmovable.position.x;
+			} else {
+				dynamics.add(unmovable);
+			}
+		}
+		staticSignature = signature;
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether unmovable is drawn into the static layer
+	 * They only change when a box is destroyed (their animation frames look the same)
+	 * @param unmovable
+	 * @return
+	 * @formatter:on
+	 */
+	private static boolean isStatic(final Unmovable unmovable) {
+		return unmovable instanceof Wall || unmovable instanceof Box;
+	}
+
+	/**
+	 * @formatter:off
+	 * Redraws the static layer if walls or boxes changed or the view left it
+	 * It covers the view and Config.interestMarginSquare squares around it (as far as the server sends elements)
+	 * so it is only redrawn every few squares of movement
+	 * @param offset position which should be deduced from all points to centralize non origin points
+	 * @formatter:on
+	 */
+	private void staticLayer(final Position offset) {
+		final List<Unmovable> unmovables = worldClient.unmovables;
+		final long signature = staticSignature;
+
+		// view in world coordinates
+		final int viewY = -offset.y;
+		final int viewX = -offset.x;
+		if (staticLayer != null && signature == staticLayerSignature && viewY >= staticLayerOrigin.y
+				&& viewX >= staticLayerOrigin.x
+				&& viewY + config.windowHeight <= staticLayerOrigin.y + staticLayer.getHeight()
+				&& viewX + config.windowWidth <= staticLayerOrigin.x + staticLayer.getWidth()) {
+			return;
+		}
+
+		final int margin = config.interestMarginSquare * config.squaresize;
+		final int height = config.windowHeight + 2 * margin;
+		final int width = config.windowWidth + 2 * margin;
+		if (staticLayer == null) {
+			final GraphicsConfiguration graphicsConfiguration = getGraphicsConfiguration();
+			// not displayed
+			if (graphicsConfiguration == null) {
+				staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+			} else {
+				staticLayer = graphicsConfiguration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+			}
 		}
+		staticLayerOrigin.y = viewY - margin;
+		staticLayerOrigin.x = viewX - margin;
+		staticLayerSignature = signature;
+
+		final Graphics2D graphics = staticLayer.createGraphics();
+		graphics.setComposite(AlphaComposite.Clear);
+		graphics.fillRect(0, 0, width, height);
+		graphics.setComposite(AlphaComposite.SrcOver);
+		for (int i = 0; i < unmovables.size(); i++) {
+			final Unmovable unmovable = unmovables.get(i);
+			if (!isStatic(unmovable)) {
+				continue;
+			}
+			final int y = unmovable.position.y - staticLayerOrigin.y;
+			final int x = unmovable.position.x - staticLayerOrigin.x;
+			if (y + config.squaresize <= 0 || x + config.squaresize <= 0 || y >= height || x >= width) {
+				continue;
+			}
+			spriteAtlas().draw(graphics, unmovable.animation, false, y, x);
+		}
+		graphics.dispose();
 	}
 
 	/**
@@ -187,24 +340,28 @@ public class Draw extends Canvas {
 	 * @formatter:on
 	 */
 	public void movable(final Graphics graphics, final Position offset) {
-		for (final Movable movable : worldClient.movables) {
-			final Image image = movable.animation.getImage();
-			final Position position = movable.position.shift(offset);
+		final List<Movable> movables = worldClient.movables;
+		for (int i = 0; i < movables.size(); i++) {
+			final Movable movable = movables.get(i);
+			final Position position = worldClient.getPositionDrawn(movable);
+			final int y = position.y + offset.y;
+			final int x = position.x + offset.x;
+			// name can be wider than the square
+			if (!isVisible(y, x, config.squaresize)) {
+				continue;
+			}
 
 			// flip image if moving to right
-			if (!movable.keys[Key.KeyType.KeyLeft.getValue()] && movable.keys[Key.KeyType.KeyRight.getValue()]) {
-				graphics.drawImage(image, position.x + config.squaresize, position.y, -config.squaresize,
-						config.squaresize, null);
-			} else {
-				graphics.drawImage(image, position.x, position.y, config.squaresize, config.squaresize, null);
-			}
+			final boolean mirror = !movable.keys[Key.KeyType.KeyLeft.getValue()]
+					&& movable.keys[Key.KeyType.KeyRight.getValue()];
+			spriteAtlas().draw(graphics, movable.animation, mirror, y, x);
 
 			if (movable.owner != null) {
 				final int nameWidth = graphics.getFontMetrics().stringWidth(movable.owner.name);
 				final int nameOffset = (config.squaresize - nameWidth) / 2;
 
 				graphics.setColor(Color.WHITE);
-				graphics.drawString(movable.owner.name, position.x + nameOffset, position.y - 10);
+				graphics.drawString(movable.owner.name, x + nameOffset, y - 10);
 			}
 		}
 	}
@@ -44,11 +44,10 @@ public class GUI {
 	 * Initializes swing gui
 	 * @param connect executed when connect popup is confirmed
 	 * @param disconnect executed when disconnect menu is clicked
-	 * @param send server update function which will be called on new key press
 	 * @param keys array which will be updated to reflect currently pressed keys
 	 * @formatter:on
 	 */
-	public GUI(final BooleanSupplier connect, final Runnable disconnect, final Runnable send, final boolean[] keys) {
+	public GUI(final BooleanSupplier connect, final Runnable disconnect, final boolean[] keys) {
 		jFrame = new JFrame();
 		// add back height used by menu
 		jFrame.setSize(config.windowWidth, config.windowHeight + 50);
@@ -69,7 +68,8 @@ public class GUI {
 		keyMaps.add(new KeyMap(KeyEvent.VK_S, "down", Key.KeyType.KeyDown.getValue()));
 		keyMaps.add(new KeyMap(KeyEvent.VK_A, "left", Key.KeyType.KeyLeft.getValue()));
 		keyMaps.add(new KeyMap(KeyEvent.VK_SPACE, "bomb", Key.KeyType.KeyBomb.getValue()));
-		panel = new KeyCapturePanel(keyMaps, keys, send::run);
+		// keys are sampled by Client every tick
+		panel = new KeyCapturePanel(keyMaps, keys);
 		panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
 		panel.setSize(config.windowWidth, config.windowHeight);
 		panel.active = false;
@@ -0,0 +1,153 @@
+package client;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import di.DI;
+import helper.Config;
+import helper.Logger;
+import helper.Threads;
+import network.Connect;
+
+/**
+ * @formatter:off
+ * Writes inputs and pings to the server connection on its own thread so the tick never waits for the socket
+ * Everything offered since the last write is coalesced into a single write
+ * While the connection is stuck at most Config.inputMailboxSize inputs are kept, the oldest are dropped
+ * (the server would drop them as well)
+ * @formatter:on
+ */
+public class InputSender implements AutoCloseable {
+	private static Config config = (Config) DI.get(Config.class);
+	private static Logger logger = (Logger) DI.get(Logger.class);
+
+	private final Connect connect;
+	private final Runnable lost;
+	private final Queue<Object> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger inputs = new AtomicInteger();
+	private final Semaphore available = new Semaphore(0);
+	private volatile boolean closed = false;
+
+	/**
+	 * @formatter:off
+	 * @param connect connected
+	 * @param lost called by the writer thread if the connection can not be written
+	 * @formatter:on
+	 */
+	public InputSender(final Connect connect, final Runnable lost) {
+		this.connect = connect;
+		this.lost = lost;
+		Threads.start(this::write);
+	}
+
+	/**
+	 * @formatter:off
+	 * Queues an input, never blocks
+	 * @param input must not be modified after offered
+	 * @formatter:on
+	 */
+	public void offerInput(final Object input) {
+		if (closed) {
+			return;
+		}
+
+		pending.offer(new Input(input));
+		if (inputs.incrementAndGet() > config.inputMailboxSize) {
+			drop();
+		}
+		available.release();
+	}
+
+	/**
+	 * @formatter:off
+	 * Queues a control object (e.g. Ping), it is never dropped
+	 * Never blocks
+	 * @param object must not be modified after offered
+	 * @formatter:on
+	 */
+	public void offerControl(final Object object) {
+		if (closed) {
+			return;
+		}
+
+		pending.offer(object);
+		available.release();
+	}
+
+	/**
+	 * Marks an input so it can be told apart from control objects
+	 */
+	private static class Input {
+		public final Object object;
+
+		public Input(final Object object) {
+			this.object = object;
+		}
+	}
+
+	/**
+	 * Drops the oldest queued input
+	 */
+	private void drop() {
+		for (final Object object : pending) {
+			if (object instanceof Input && pending.remove(object)) {
+				inputs.decrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writer loop, writes everything queued at once
+	 */
+	private void write() {
+		final List<Object> objects = new ArrayList<>();
+		while (!closed) {
+			try {
+				available.acquire();
+			} catch (final InterruptedException e) {
+				break;
+			}
+			available.drainPermits();
+
+			objects.clear();
+			Object object;
+			while ((object = pending.poll()) != null) {
+				if (object instanceof Input) {
+					inputs.decrementAndGet();
+					objects.add(((Input) object).object);
+				} else {
+					objects.add(object);
+				}
+			}
+			if (objects.isEmpty()) {
+				continue;
+			}
+
+			try {
+				connect.send(objects.toArray());
+			} catch (final IOException e) {
+				if (!closed) {
+					logger.println("Client couldn't send update");
+					closed = true;
+					lost.run();
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Stops writer thread, does not close connection
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		available.release();
+	}
+}
@@ -26,14 +26,13 @@ public class KeyCapturePanel extends JPanel {
 
 	/**
 	 * @formatter:off
-	 * Panel which solves capturing keys by giving a list of keys to be captured and a callback to be called when any key is pressed
+	 * Panel which solves capturing keys by giving a list of keys to be captured, their state is kept in keys
 	 * 
 	 * @param keyMaps
 	 * @param keys
-	 * @param callback
 	 * @formatter:on
 	 */
-	public KeyCapturePanel(final List<KeyMap> keyMaps, final boolean[] keys, final Runnable callback) {
+	public KeyCapturePanel(final List<KeyMap> keyMaps, final boolean[] keys) {
 		final InputMap inputMap = getInputMap(WHEN_IN_FOCUSED_WINDOW);
 		final ActionMap actionMap = getActionMap();
 		final boolean[] onreleases = { false, true };
@@ -56,7 +55,6 @@ public class KeyCapturePanel extends JPanel {
 						} else {
 							keys[keyMap.keysIndex] = true;
 						}
-						callback.run();
 					}
 				});
 			}
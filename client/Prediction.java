@@ -0,0 +1,97 @@
+package client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import di.DI;
+import helper.Config;
+import helper.Key;
+import user.InputMailbox.Input;
+import world.element.movable.Player;
+
+/**
+ * @formatter:off
+ * Client side prediction of our player
+ * Every input is applied locally with the same movement rules as on the server
+ * When a WorldClient arrives our player is reset to the server's position
+ * and the inputs the server has not yet applied are replayed on it
+ * The WorldClient is the published one (see SnapshotHandoff) and its elements are modified in place
+ * (our player, bombs moved out of), so every call has to hold the ClientModel lock
+ * Not thread safe
+ * @formatter:on
+ */
+public class Prediction {
+	private static Config config = (Config) DI.get(Config.class);
+
+	// inputs not yet confirmed by server, oldest first
+	private final Deque<Input> pending = new ArrayDeque<>();
+	private WorldClient worldClient;
+
+	/**
+	 * @formatter:off
+	 * Applies input locally and remembers it until server confirms it
+	 * @param input
+	 * @formatter:on
+	 */
+	public void step(final Input input) {
+		pending.addLast(input);
+		// server does not confirm, do not grow forever
+		if (pending.size() > config.tickSecond) {
+			pending.removeFirst();
+		}
+		if (worldClient == null) {
+			return;
+		}
+
+		final Player player = worldClient.findMe();
+		if (player == null) {
+			return;
+		}
+		apply(player, input);
+	}
+
+	/**
+	 * @formatter:off
+	 * Reconciles our player in a WorldClient received from server with the unconfirmed inputs
+	 * The WorldClient is modified and kept to predict further steps on it
+	 * @param worldClient
+	 * @formatter:on
+	 */
+	public void reconcile(final WorldClient worldClient) {
+		this.worldClient = worldClient;
+
+		final Player player = worldClient.findMe();
+		if (player == null) {
+			return;
+		}
+
+		// confirmed inputs are already in server's position
+		while (!pending.isEmpty() && pending.peekFirst().sequence <= player.inputSequence) {
+			pending.removeFirst();
+		}
+
+		for (final Input input : pending) {
+			apply(player, input);
+		}
+	}
+
+	/**
+	 * Forgets inputs and WorldClient
+	 */
+	public void clear() {
+		pending.clear();
+		worldClient = null;
+	}
+
+	/**
+	 * @formatter:off
+	 * Moves player by input like the server would do in a tick
+	 * @param player
+	 * @param input
+	 * @formatter:on
+	 */
+	private void apply(final Player player, final Input input) {
+		System.arraycopy(input.keys, 0, player.keys, 0, Key.KeyType.KeyLength);
+		player.applyMovement(worldClient, worldClient, 0);
+	}
+}
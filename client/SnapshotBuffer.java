@@ -0,0 +1,129 @@
+package client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import helper.Position;
+import world.element.movable.Movable;
+import world.element.movable.Player;
+
+/**
+ * @formatter:off
+ * WorldClients received from server on the server's timeline
+ * Movables of others can be drawn interpolated between the two WorldClients around a render time
+ * Thread safe
+ * @formatter:on
+ */
+public class SnapshotBuffer {
+	// how long WorldClients are kept (ms)
+	private static final long keep = 1000;
+
+	private static class Snapshot {
+		public final WorldClient worldClient;
+		public final long time;
+
+		public Snapshot(final WorldClient worldClient, final long time) {
+			this.worldClient = worldClient;
+			this.time = time;
+		}
+	}
+
+	// oldest first
+	private final Deque<Snapshot> snapshots = new ArrayDeque<>();
+
+	/**
+	 * @formatter:off
+	 * Adds WorldClient if it is newer than the latest one
+	 * @param worldClient
+	 * @param time server time it was created at (ms)
+	 * @return false if it is not newer
+	 * @formatter:on
+	 */
+	public synchronized boolean add(final WorldClient worldClient, final long time) {
+		if (!snapshots.isEmpty() && worldClient.sequence <= snapshots.peekLast().worldClient.sequence) {
+			return false;
+		}
+
+		snapshots.addLast(new Snapshot(worldClient, time));
+		while (snapshots.size() > 2 && snapshots.peekFirst().time < time - keep) {
+			snapshots.removeFirst();
+		}
+		return true;
+	}
+
+	public synchronized void clear() {
+		snapshots.clear();
+	}
+
+	/**
+	 * @formatter:off
+	 * Creates WorldClient to be drawn at renderTime
+	 * Elements are taken from the first WorldClient created after renderTime,
+	 * positions of movables are interpolated from the same movable (by id) in the one before it
+	 * Our player is taken from the latest WorldClient as it is predicted
+	 * Reads positions, so it has to be called with the ClientModel lock closed (see SnapshotHandoff)
+	 * @param renderTime server time (ms)
+	 * @return null if empty
+	 * @formatter:on
+	 */
+	public synchronized WorldClient interpolate(final long renderTime) {
+		if (snapshots.isEmpty()) {
+			return null;
+		}
+		final WorldClient latest = snapshots.peekLast().worldClient;
+
+		// snapshots around renderTime
+		Snapshot from = snapshots.peekFirst();
+		Snapshot to = from;
+		final Iterator<Snapshot> iterator = snapshots.iterator();
+		while (iterator.hasNext()) {
+			final Snapshot snapshot = iterator.next();
+			to = snapshot;
+			if (snapshot.time > renderTime) {
+				break;
+			}
+			from = snapshot;
+		}
+		double alpha = 1;
+		if (to.time != from.time) {
+			alpha = Math.max(0, Math.min(1, (double) (renderTime - from.time) / (to.time - from.time)));
+		}
+
+		final WorldClient worldClient = new WorldClient(to.worldClient);
+		worldClient.state = latest.state;
+		worldClient.youId = latest.youId;
+		worldClient.movables = new ArrayList<>();
+		worldClient.positionsInterpolated = new IdentityHashMap<>();
+		final Player you = latest.findMe();
+		if (you != null) {
+			worldClient.movables.add(you);
+		}
+
+		// same movable in both by id
+		final Map<Integer, Movable> movablesFrom = new HashMap<>();
+		for (final Movable movable : from.worldClient.movables) {
+			movablesFrom.put(movable.id, movable);
+		}
+		for (final Movable movable : to.worldClient.movables) {
+			if (movable.id == latest.youId) {
+				continue;
+			}
+
+			worldClient.movables.add(movable);
+			final Movable movableFrom = movablesFrom.get(movable.id);
+			if (movableFrom != null) {
+				final Position position = new Position(
+						(int) Math.round(movableFrom.position.y + alpha * (movable.position.y - movableFrom.position.y)),
+						(int) Math.round(movableFrom.position.x + alpha * (movable.position.x - movableFrom.position.x)));
+				worldClient.positionsInterpolated.put(movable, position);
+			}
+		}
+
+		return worldClient;
+	}
+}
@@ -0,0 +1,366 @@
+package client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import di.DI;
+import helper.Config;
+import helper.Key;
+import helper.Position;
+import network.BitReader;
+import network.BitWriter;
+import user.User;
+import world.element.WorldElement;
+import world.element.movable.Enemy;
+import world.element.movable.Movable;
+import world.element.movable.Player;
+import world.element.unmovable.Bomb;
+import world.element.unmovable.BombFire;
+import world.element.unmovable.Box;
+import world.element.unmovable.Exit;
+import world.element.unmovable.Unmovable;
+import world.element.unmovable.Wall;
+
+/**
+ * @formatter:off
+ * Bit packed encoding of WorldClient, only what clients use is kept
+ * Widths of positions are derived from the world dimensions which are sent first
+ * Positions on a square boundary (every unmovable) are sent as square indexes
+ * Ids are sent as the difference from the previous one as elements are mostly in creation order
+ * @formatter:on
+ */
+public class SnapshotCodec {
+	private static Config config = (Config) DI.get(Config.class);
+
+	// index is the type code
+	private static final List<Class<? extends WorldElement>> types = List.of(Wall.class, Box.class, Exit.class,
+			Bomb.class, BombFire.class, Enemy.class, Player.class);
+	private static final List<Supplier<WorldElement>> constructors = List.of(Wall::new, Box::new, Exit::new,
+			Bomb::new, BombFire::new, Enemy::new, Player::new);
+	private static final int typeBits = BitWriter.bitsFor(types.size() - 1);
+	private static final User.State[] states = User.State.values();
+	private static final int stateBits = BitWriter.bitsFor(states.length);
+
+	/**
+	 * Bit widths of positions in a world
+	 */
+	private static class Widths {
+		public final int height;
+		public final int width;
+		public final int squareY;
+		public final int squareX;
+		public final int pixelY;
+		public final int pixelX;
+
+		public Widths(final int height, final int width) {
+			this.height = height;
+			this.width = width;
+			squareY = BitWriter.bitsFor(Math.max(0, height - 1));
+			squareX = BitWriter.bitsFor(Math.max(0, width - 1));
+			pixelY = BitWriter.bitsFor((long) height * config.squaresize);
+			pixelX = BitWriter.bitsFor((long) width * config.squaresize);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Encodes worldClient
+	 * @param worldClient
+	 * @return
+	 * @throws IOException if an element can not be encoded
+	 * @formatter:on
+	 */
+	public static byte[] encode(final WorldClient worldClient) throws IOException {
+		final BitWriter bitWriter = new BitWriter();
+		bitWriter.write(worldClient.state == null ? 0 : worldClient.state.ordinal() + 1, stateBits);
+		bitWriter.writeVarLong(worldClient.sequence);
+		bitWriter.writeVarLong(worldClient.tick);
+		bitWriter.write(worldClient.time, 64);
+		bitWriter.writeVarLong(worldClient.height);
+		bitWriter.writeVarLong(worldClient.width);
+		final Widths widths = new Widths(worldClient.height, worldClient.width);
+
+		writeElements(bitWriter, worldClient.unmovables, widths);
+		writeElements(bitWriter, worldClient.movables, widths);
+		writeIds(bitWriter, worldClient.unmovableIds);
+		writeIds(bitWriter, worldClient.movableIds);
+		writeReference(bitWriter, worldClient.exit, worldClient.unmovables, widths);
+		bitWriter.writeSignedVarLong(worldClient.youId);
+
+		return bitWriter.toByteArray();
+	}
+
+	/**
+	 * @formatter:off
+	 * Decodes into worldClient
+	 * @param bytes encoded by encode
+	 * @param worldClient
+	 * @throws IOException if bytes are malformed
+	 * @formatter:on
+	 */
+	public static void decode(final byte[] bytes, final WorldClient worldClient) throws IOException {
+		final BitReader bitReader = new BitReader(bytes);
+		final int state = (int) bitReader.read(stateBits);
+		if (state > states.length) {
+			throw new IOException("Unknown state");
+		}
+		worldClient.state = state == 0 ? null : states[state - 1];
+		worldClient.sequence = bitReader.readVarLong();
+		worldClient.tick = bitReader.readVarLong();
+		worldClient.time = bitReader.read(64);
+		worldClient.height = (int) bitReader.readVarLong();
+		worldClient.width = (int) bitReader.readVarLong();
+		final Widths widths = new Widths(worldClient.height, worldClient.width);
+
+		worldClient.unmovables = readElements(bitReader, Unmovable.class, widths);
+		worldClient.movables = readElements(bitReader, Movable.class, widths);
+		worldClient.unmovableIds = readIds(bitReader);
+		worldClient.movableIds = readIds(bitReader);
+		worldClient.exit = readReference(bitReader, Unmovable.class, worldClient.unmovables, widths);
+		worldClient.youId = (int) bitReader.readSignedVarLong();
+	}
+
+	/**
+	 * @formatter:off
+	 * Size of worldElement in the elements of a WorldClient of height x width
+	 * Its id is counted as a byte, ids are sent as differences which are small mostly
+	 * @param worldElement
+	 * @param height of the world
+	 * @param width of the world
+	 * @return bits
+	 * @throws IOException if worldElement can not be encoded
+	 * @formatter:on
+	 */
+	public static long sizeOf(final WorldElement worldElement, final int height, final int width)
+			throws IOException {
+		final BitWriter bitWriter = new BitWriter();
+		writeElement(bitWriter, worldElement, new Widths(height, width));
+		return Byte.SIZE + bitWriter.getSize();
+	}
+
+	private static void writeElements(final BitWriter bitWriter, final List<? extends WorldElement> worldElements,
+			final Widths widths) throws IOException {
+		bitWriter.writeVarLong(worldElements.size());
+		int idPrevious = 0;
+		for (final WorldElement worldElement : worldElements) {
+			bitWriter.writeSignedVarLong(worldElement.id - idPrevious);
+			idPrevious = worldElement.id;
+			writeElement(bitWriter, worldElement, widths);
+		}
+	}
+
+	private static <E extends WorldElement> List<E> readElements(final BitReader bitReader, final Class<E> type,
+			final Widths widths) throws IOException {
+		final int count = readCount(bitReader);
+		final List<E> worldElements = new ArrayList<>(count);
+		int id = 0;
+		for (int i = 0; i < count; i++) {
+			id += (int) bitReader.readSignedVarLong();
+			worldElements.add(readElement(bitReader, id, type, widths));
+		}
+		return worldElements;
+	}
+
+	private static void writeIds(final BitWriter bitWriter, final int[] ids) {
+		bitWriter.writeBoolean(ids != null);
+		if (ids == null) {
+			return;
+		}
+
+		bitWriter.writeVarLong(ids.length);
+		int idPrevious = 0;
+		for (final int id : ids) {
+			bitWriter.writeSignedVarLong(id - idPrevious);
+			idPrevious = id;
+		}
+	}
+
+	private static int[] readIds(final BitReader bitReader) throws IOException {
+		if (!bitReader.readBoolean()) {
+			return null;
+		}
+
+		final int[] ids = new int[readCount(bitReader)];
+		int id = 0;
+		for (int i = 0; i < ids.length; i++) {
+			id += (int) bitReader.readSignedVarLong();
+			ids[i] = id;
+		}
+		return ids;
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes element referenced by a field: its id if it is in worldElements otherwise the element itself
+	 * @param bitWriter
+	 * @param worldElement nullable
+	 * @param worldElements
+	 * @param widths
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	private static void writeReference(final BitWriter bitWriter, final WorldElement worldElement,
+			final List<? extends WorldElement> worldElements, final Widths widths) throws IOException {
+		bitWriter.writeBoolean(worldElement != null);
+		if (worldElement == null) {
+			return;
+		}
+
+		final boolean contained = worldElements.contains(worldElement);
+		bitWriter.writeBoolean(contained);
+		bitWriter.writeVarLong(worldElement.id);
+		if (!contained) {
+			writeElement(bitWriter, worldElement, widths);
+		}
+	}
+
+	private static <E extends WorldElement> E readReference(final BitReader bitReader, final Class<E> type,
+			final List<? extends WorldElement> worldElements, final Widths widths) throws IOException {
+		if (!bitReader.readBoolean()) {
+			return null;
+		}
+
+		final boolean contained = bitReader.readBoolean();
+		final int id = (int) bitReader.readVarLong();
+		if (!contained) {
+			return readElement(bitReader, id, type, widths);
+		}
+		for (final WorldElement worldElement : worldElements) {
+			if (worldElement.id == id && type.isInstance(worldElement)) {
+				return type.cast(worldElement);
+			}
+		}
+		throw new IOException("Referenced element is missing");
+	}
+
+	private static void writeElement(final BitWriter bitWriter, final WorldElement worldElement, final Widths widths)
+			throws IOException {
+		final int type = types.indexOf(worldElement.getClass());
+		if (type < 0) {
+			throw new IOException("Unknown element " + worldElement.getClass().getName());
+		}
+		bitWriter.write(type, typeBits);
+
+		writePosition(bitWriter, worldElement.position, widths);
+		bitWriter.write(worldElement.animation.getState(), BitWriter.bitsFor(worldElement.animation.stateEnd));
+
+		if (worldElement instanceof Bomb) {
+			// prediction lets the owner walk out of it
+			bitWriter.writeBoolean(((Bomb) worldElement).movedOutOfBomb);
+			bitWriter.writeSignedVarLong(((Bomb) worldElement).ownerId);
+		}
+
+		if (worldElement instanceof Movable) {
+			final Movable movable = (Movable) worldElement;
+			bitWriter.writeVarLong(movable.velocity);
+			for (int i = 0; i < Key.KeyType.KeyLength; i++) {
+				bitWriter.writeBoolean(movable.keys[i]);
+			}
+			bitWriter.writeBoolean(movable.owner != null);
+			if (movable.owner != null) {
+				final byte[] name = movable.owner.name.getBytes(StandardCharsets.UTF_8);
+				bitWriter.writeVarLong(name.length);
+				for (final byte b : name) {
+					bitWriter.write(b, 8);
+				}
+			}
+			if (movable instanceof Player) {
+				bitWriter.writeSignedVarLong(movable.inputSequence);
+			}
+		}
+	}
+
+	private static <E extends WorldElement> E readElement(final BitReader bitReader, final int id,
+			final Class<E> expected, final Widths widths) throws IOException {
+		final int type = (int) bitReader.read(typeBits);
+		if (type >= types.size() || !expected.isAssignableFrom(types.get(type))) {
+			throw new IOException("Unexpected element type");
+		}
+		final WorldElement worldElement = constructors.get(type).get();
+		worldElement.id = id;
+
+		worldElement.position = readPosition(bitReader, widths);
+		final long state = bitReader.read(BitWriter.bitsFor(worldElement.animation.stateEnd));
+		if (state >= worldElement.animation.stateEnd) {
+			throw new IOException("Animation state is out of range");
+		}
+		worldElement.animation.setState(state);
+
+		if (worldElement instanceof Bomb) {
+			((Bomb) worldElement).movedOutOfBomb = bitReader.readBoolean();
+			((Bomb) worldElement).ownerId = (int) bitReader.readSignedVarLong();
+		}
+
+		if (worldElement instanceof Movable) {
+			final Movable movable = (Movable) worldElement;
+			movable.velocity = (int) bitReader.readVarLong();
+			for (int i = 0; i < Key.KeyType.KeyLength; i++) {
+				movable.keys[i] = bitReader.readBoolean();
+			}
+			if (bitReader.readBoolean()) {
+				final int length = (int) bitReader.readVarLong();
+				if (length > 4 * config.nameMaxLength) {
+					throw new IOException("Name is too long");
+				}
+				final byte[] name = new byte[length];
+				for (int i = 0; i < length; i++) {
+					name[i] = (byte) bitReader.read(8);
+				}
+				movable.owner = new User();
+				movable.owner.name = new String(name, StandardCharsets.UTF_8);
+			}
+			if (movable instanceof Player) {
+				movable.inputSequence = bitReader.readSignedVarLong();
+			}
+		}
+
+		return expected.cast(worldElement);
+	}
+
+	private static void writePosition(final BitWriter bitWriter, final Position position, final Widths widths)
+			throws IOException {
+		final long heightPixel = (long) widths.height * config.squaresize;
+		final long widthPixel = (long) widths.width * config.squaresize;
+		if (position.y < 0 || position.x < 0 || position.y > heightPixel || position.x > widthPixel) {
+			throw new IOException("Position is out of world");
+		}
+
+		final boolean square = position.y % config.squaresize == 0 && position.x % config.squaresize == 0
+				&& position.y < heightPixel && position.x < widthPixel;
+		bitWriter.writeBoolean(square);
+		if (square) {
+			bitWriter.write(position.y / config.squaresize, widths.squareY);
+			bitWriter.write(position.x / config.squaresize, widths.squareX);
+		} else {
+			bitWriter.write(position.y, widths.pixelY);
+			bitWriter.write(position.x, widths.pixelX);
+		}
+	}
+
+	private static Position readPosition(final BitReader bitReader, final Widths widths) throws IOException {
+		if (bitReader.readBoolean()) {
+			return new Position((int) bitReader.read(widths.squareY) * config.squaresize,
+					(int) bitReader.read(widths.squareX) * config.squaresize);
+		}
+		return new Position((int) bitReader.read(widths.pixelY), (int) bitReader.read(widths.pixelX));
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads a count of items, each of them takes at least a bit
+	 * @param bitReader
+	 * @return
+	 * @throws IOException if there are not enough bits left for them
+	 * @formatter:on
+	 */
+	private static int readCount(final BitReader bitReader) throws IOException {
+		final long count = bitReader.readVarLong();
+		if (count > bitReader.remaining()) {
+			throw new IOException("Count is too large");
+		}
+		return (int) count;
+	}
+}
@@ -0,0 +1,78 @@
+package client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @formatter:off
+ * Latest-wins handoff of merged WorldClients from the receiving threads to the renderer
+ * Receiving never waits for the renderer: a WorldClient not taken before a newer one arrives is dropped
+ * so the renderer always continues from the freshest state instead of working through a backlog
+ * Elements of published WorldClients are shared with the tick which predicts our player on them (see Prediction),
+ * so their fields are guarded by the ClientModel lock: only the ids of elements may be read without it
+ * Lock-free, thread safe
+ * @formatter:on
+ */
+public class SnapshotHandoff {
+	// published but not taken yet
+	private final AtomicReference<WorldClient> pending = new AtomicReference<>();
+	// newest published, kept after it was taken
+	private final AtomicReference<WorldClient> latest = new AtomicReference<>();
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * @formatter:off
+	 * Publishes worldClient, replacing the one not taken yet
+	 * Connection and datagram receivers can race, the newer sequence wins
+	 * @param worldClient must not be modified after published, except its elements while holding the ClientModel lock
+	 * @formatter:on
+	 */
+	public void publish(final WorldClient worldClient) {
+		latest.accumulateAndGet(worldClient, SnapshotHandoff::newer);
+		final WorldClient previous = pending.getAndAccumulate(worldClient, SnapshotHandoff::newer);
+		if (previous != null) {
+			dropped.incrementAndGet();
+		}
+	}
+
+	private static WorldClient newer(final WorldClient current, final WorldClient next) {
+		return current == null || next.sequence > current.sequence ? next : current;
+	}
+
+	/**
+	 * @formatter:off
+	 * Takes the WorldClient published since the last take
+	 * @return null if nothing new was published
+	 * @formatter:on
+	 */
+	public WorldClient take() {
+		return pending.getAndSet(null);
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns the newest WorldClient published, whether taken or not
+	 * Its elements may be modified by the caller while holding the ClientModel lock
+	 * @return null if nothing was published
+	 * @formatter:on
+	 */
+	public WorldClient latest() {
+		return latest.get();
+	}
+
+	/**
+	 * @formatter:off
+	 * Number of WorldClients replaced before they were taken
+	 * @return
+	 * @formatter:on
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	public void clear() {
+		pending.set(null);
+		latest.set(null);
+		dropped.set(0);
+	}
+}
@@ -0,0 +1,114 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import network.KeyState;
+import world.element.WorldElement;
+import world.element.movable.Movable;
+import world.element.unmovable.Unmovable;
+
+/**
+ * @formatter:off
+ * Completes partial WorldClients
+ * Server only sends some of the elements in view (see PriorityAccumulator) with the ids of all of them
+ * Elements not sent are kept from previous WorldClients, elements not in view any more are forgotten
+ * Elements never received yet are left out until they arrive
+ * Remembers which WorldClients were merged so the server can resend what was in lost ones
+ * Only ids of the elements are read, so it does not need the ClientModel lock which guards their other fields
+ * Thread safe
+ * @formatter:on
+ */
+public class SnapshotMerger {
+	private Map<Integer, Unmovable> unmovables = new HashMap<>();
+	private Map<Integer, Movable> movables = new HashMap<>();
+	private long sequence = -1;
+	// bit i is set if sequence - 1 - i was merged
+	private long received = 0;
+
+	/**
+	 * @formatter:off
+	 * Completes worldClient in place with the elements known from previous ones
+	 * @param worldClient
+	 * @return false if it is not newer than the previous one
+	 * @formatter:on
+	 */
+	public synchronized boolean merge(final WorldClient worldClient) {
+		if (worldClient.sequence <= sequence) {
+			return false;
+		}
+		final long shift = worldClient.sequence - sequence;
+		if (sequence < 0 || shift > Long.SIZE) {
+			received = 0;
+		} else {
+			received = (shift == Long.SIZE ? 0 : received << shift) | 1L << (shift - 1);
+		}
+		sequence = worldClient.sequence;
+
+		final Map<Integer, Unmovable> unmovablesNext = new HashMap<>();
+		worldClient.unmovables = merge(worldClient.unmovables, worldClient.unmovableIds, unmovables, unmovablesNext);
+		unmovables = unmovablesNext;
+
+		final Map<Integer, Movable> movablesNext = new HashMap<>();
+		worldClient.movables = merge(worldClient.movables, worldClient.movableIds, movables, movablesNext);
+		movables = movablesNext;
+
+		return true;
+	}
+
+	public synchronized void clear() {
+		unmovables = new HashMap<>();
+		movables = new HashMap<>();
+		sequence = -1;
+		received = 0;
+	}
+
+	/**
+	 * @formatter:off
+	 * Sets which WorldClients were merged
+	 * Older ones arriving late are not merged and count as lost, the server resends their elements
+	 * @param keyState its ack and received are set
+	 * @formatter:on
+	 */
+	public synchronized void acknowledge(final KeyState keyState) {
+		keyState.ack = sequence;
+		keyState.received = received;
+	}
+
+	/**
+	 * @formatter:off
+	 * Merges elements sent with the ones known
+	 * @param <E>
+	 * @param received elements sent
+	 * @param ids all elements in view in drawing order, null if received contains all
+	 * @param known elements by id from previous WorldClients
+	 * @param knownNext filled with elements by id for the next WorldClient
+	 * @return elements in view
+	 * @formatter:on
+	 */
+	private static <E extends WorldElement> List<E> merge(final List<E> received, final int[] ids,
+			final Map<Integer, E> known, final Map<Integer, E> knownNext) {
+		for (final E worldElement : received) {
+			knownNext.put(worldElement.id, worldElement);
+		}
+		if (ids == null) {
+			return received;
+		}
+
+		final List<E> merged = new ArrayList<>(ids.length);
+		for (final int id : ids) {
+			E worldElement = knownNext.get(id);
+			if (worldElement == null) {
+				worldElement = known.get(id);
+				if (worldElement == null) {
+					continue;
+				}
+				knownNext.put(id, worldElement);
+			}
+			merged.add(worldElement);
+		}
+		return merged;
+	}
+}
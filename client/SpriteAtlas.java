@@ -0,0 +1,121 @@
+package client;
+
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import di.DI;
+import helper.Config;
+import world.element.Animation;
+import world.element.AnimationStore;
+
+/**
+ * @formatter:off
+ * Frames of the animations in AnimationStore scaled to Config.squaresize, each also mirrored, packed into one image
+ * Drawing a frame copies its region without scaling
+ * Animations are added when they are first drawn, which rebuilds the image
+ * Only used by the drawing thread
+ * @formatter:on
+ */
+public class SpriteAtlas {
+	private static Config config = (Config) DI.get(Config.class);
+	private static AnimationStore animationStore = (AnimationStore) DI.get(AnimationStore.class);
+
+	// frames in a row of image
+	private static final int columns = 16;
+
+	// null if not displayed
+	private final GraphicsConfiguration graphicsConfiguration;
+	// frames in the order of their slots, mirrored frames of an animation follow the others
+	private final List<Image> frames = new ArrayList<>();
+	private final List<Boolean> mirrored = new ArrayList<>();
+	// slot of the first frame by animation path
+	private final Map<String, Integer> firstByPath = new HashMap<>();
+	private BufferedImage image;
+
+	/**
+	 * @formatter:off
+	 * @param graphicsConfiguration image is created compatible with it, null if not displayed
+	 * @formatter:on
+	 */
+	public SpriteAtlas(final GraphicsConfiguration graphicsConfiguration) {
+		this.graphicsConfiguration = graphicsConfiguration;
+	}
+
+	/**
+	 * @formatter:off
+	 * Draws the current frame of animation
+	 * @param graphics
+	 * @param animation
+	 * @param mirror flipped horizontally
+	 * @param y top
+	 * @param x left
+	 * @formatter:on
+	 */
+	public void draw(final Graphics graphics, final Animation animation, final boolean mirror, final int y,
+			final int x) {
+		final int count = animationStore.get(animation.path).size();
+		// animation without frames (its path does not exist) is not drawn
+		if (count == 0) {
+			return;
+		}
+
+		Integer first = firstByPath.get(animation.path);
+		if (first == null) {
+			first = add(animation.path);
+		}
+
+		final int slot = first + (mirror ? count : 0) + (int) animation.getState();
+		final int size = config.squaresize;
+		final int sourceY = slot / columns * size;
+		final int sourceX = slot % columns * size;
+		graphics.drawImage(image, x, y, x + size, y + size, sourceX, sourceY, sourceX + size, sourceY + size, null);
+	}
+
+	/**
+	 * @formatter:off
+	 * Adds the frames of an animation and rebuilds the image
+	 * @param path
+	 * @return slot of its first frame
+	 * @formatter:on
+	 */
+	private int add(final String path) {
+		final int first = frames.size();
+		firstByPath.put(path, first);
+		for (final boolean mirror : new boolean[] { false, true }) {
+			for (final Image frame : animationStore.get(path)) {
+				frames.add(frame);
+				mirrored.add(mirror);
+			}
+		}
+
+		final int size = config.squaresize;
+		final int width = columns * size;
+		final int height = (frames.size() + columns - 1) / columns * size;
+		if (graphicsConfiguration == null) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+		} else {
+			image = graphicsConfiguration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		}
+
+		final Graphics graphics = image.createGraphics();
+		for (int slot = 0; slot < frames.size(); slot++) {
+			final int y = slot / columns * size;
+			final int x = slot % columns * size;
+			if (mirrored.get(slot)) {
+				graphics.drawImage(frames.get(slot), x + size, y, -size, size, null);
+			} else {
+				graphics.drawImage(frames.get(slot), x, y, size, size, null);
+			}
+		}
+		graphics.dispose();
+
+		return first;
+	}
+}
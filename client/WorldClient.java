@@ -1,29 +1,107 @@
 package client;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map;
+
+import di.DI;
+import helper.Config;
+import helper.Position;
 import user.User.State;
 import world.World;
 import world.element.movable.Movable;
 import world.element.movable.Player;
 
-public class WorldClient extends World {
+/**
+ * @formatter:off
+ * World sent to a user
+ * Serialized with SnapshotCodec
+ * @formatter:on
+ */
+public class WorldClient extends World implements Externalizable {
+	private static Config config = (Config) DI.get(Config.class);
+
 	public State state;
+	// id of the player of the receiving user, -1 if it has none
+	public int youId = -1;
+	// increasing, WorldClients arriving in datagrams may be reordered
+	public long sequence;
+	// server tick it was created at
+	public long tick;
+	// server time it was created at (ms)
+	public long time;
+	// ids of all elements in view if only some of them were sent, null if all were sent
+	public int[] unmovableIds;
+	public int[] movableIds;
+	// positions movables should be drawn at instead of their own, null if not interpolated
+	public transient Map<Movable, Position> positionsInterpolated;
+
+	public WorldClient() {
+	}
+
+	/**
+	 * @formatter:off
+	 * Shallow copy: elements are shared, recipient specific fields can be set independently
+	 * @param worldClient
+	 * @formatter:on
+	 */
+	public WorldClient(final WorldClient worldClient) {
+		unmovables = worldClient.unmovables;
+		movables = worldClient.movables;
+		height = worldClient.height;
+		width = worldClient.width;
+		exit = worldClient.exit;
+		state = worldClient.state;
+		youId = worldClient.youId;
+		sequence = worldClient.sequence;
+		tick = worldClient.tick;
+		time = worldClient.time;
+		unmovableIds = worldClient.unmovableIds;
+		movableIds = worldClient.movableIds;
+	}
+
+	@Override
+	public void writeExternal(final ObjectOutput objectOutput) throws IOException {
+		final byte[] bytes = SnapshotCodec.encode(this);
+		objectOutput.writeInt(bytes.length);
+		objectOutput.write(bytes);
+	}
+
+	@Override
+	public void readExternal(final ObjectInput objectInput) throws IOException {
+		final int length = objectInput.readInt();
+		if (length < 0 || length > config.frameSizeMax) {
+			throw new IOException("WorldClient is too long");
+		}
+		final byte[] bytes = new byte[length];
+		objectInput.readFully(bytes);
+		SnapshotCodec.decode(bytes, this);
+	}
 
 	/**
 	 * @formatter:off
 	 * Finds the player which corresponds to us
-	 * @return
+	 * @return null if we have no player
 	 * @formatter:on
 	 */
 	public Player findMe() {
-		for (final Movable movable : movables) {
-			if (movable instanceof Player) {
-				final Player player = (Player) movable;
-				if (player.you) {
-					return player;
-				}
-			}
-		}
+		final Movable movable = findMovable(youId);
+		return movable instanceof Player ? (Player) movable : null;
+	}
 
-		return null;
+	/**
+	 * @formatter:off
+	 * Returns the position movable should be drawn at
+	 * @param movable
+	 * @return
+	 * @formatter:on
+	 */
+	public Position getPositionDrawn(final Movable movable) {
+		if (positionsInterpolated == null) {
+			return movable.position;
+		}
+		return positionsInterpolated.getOrDefault(movable, movable.position);
 	}
 }
@@ -28,11 +28,17 @@ public class DI {
 
 	/**
 	 * @formatter:off
-	 * Fills DI with basic class instances
+	 * Fills DI with basic class instances, only once
 	 * @param configFileName
 	 * @formatter:on
 	 */
 	public static void init(String configFileName) {
+		// classes keep the instances in static fields when they are loaded,
+		// replacing them (e.g. another test class initializing) would leave those classes with stale ones
+		if (DI.get(Config.class) != null) {
+			return;
+		}
+
 		Logger logger = new Logger(System.out);
 		Config config;
 		try {
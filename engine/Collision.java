@@ -8,6 +8,7 @@ import di.DI;
 import helper.Config;
 import helper.Position;
 import server.WorldServer;
+import world.World;
 import world.element.WorldElement;
 import world.element.movable.Movable;
 import world.element.unmovable.Unmovable;
@@ -72,7 +73,7 @@ public class Collision {
 	 * @formatter:off
 	 * Get first valid position on the line (from, to) from != to.
 	 * @param <E>
-	 * @param worldServer
+	 * @param world
 	 * @param from
 	 * @param to
 	 * @param worldElement we are moving this
@@ -81,7 +82,7 @@ public class Collision {
 	 * @return first valid position
 	 * @formatter:on
 	 */
-	public static <E extends WorldElement> Position getValidPositionOnLine(final WorldServer worldServer,
+	public static <E extends WorldElement> Position getValidPositionOnLine(final World world,
 			final Position from, final Position to, final E worldElement,
 			final BiFunction<E, Unmovable, Boolean> collisionDecideUnmovable,
 			final BiFunction<E, Movable, Boolean> collisionDecideMovable) {
@@ -113,9 +114,9 @@ public class Collision {
 			// step y
 			current.y += unit.y;
 
-			List<Unmovable> unmovableCollisions = getCollisions(worldServer.unmovables, current, worldElement,
+			List<Unmovable> unmovableCollisions = getCollisions(world.unmovables, current, worldElement,
 					collisionDecideUnmovable);
-			List<Movable> movableCollisions = getCollisions(worldServer.movables, current, worldElement,
+			List<Movable> movableCollisions = getCollisions(world.movables, current, worldElement,
 					collisionDecideMovable);
 			if (unmovableCollisions.size() != 0 || movableCollisions.size() != 0) {
 				current.y -= unit.y;
@@ -124,9 +125,9 @@ public class Collision {
 			// step x
 			current.x += unit.x;
 
-			unmovableCollisions = getCollisions(worldServer.unmovables, current, worldElement,
+			unmovableCollisions = getCollisions(world.unmovables, current, worldElement,
 					collisionDecideUnmovable);
-			movableCollisions = getCollisions(worldServer.movables, current, worldElement, collisionDecideMovable);
+			movableCollisions = getCollisions(world.movables, current, worldElement, collisionDecideMovable);
 			if (unmovableCollisions.size() != 0 || movableCollisions.size() != 0) {
 				current.x -= unit.x;
 			}
@@ -0,0 +1,104 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import di.DI;
+import helper.Config;
+import helper.Position;
+import world.element.WorldElement;
+
+/**
+ * @formatter:off
+ * Buckets WorldElements by the square their position is in so elements in an area can be found
+ * without iterating all of them
+ * Elements outside of the world are put into the nearest border square
+ * Query results keep the order elements were added in, so drawing order does not change
+ * Not thread safe
+ * @param <E>
+ * @formatter:on
+ */
+public class SpatialGrid<E extends WorldElement> {
+	private static Config config = (Config) DI.get(Config.class);
+
+	private final int height;
+	private final int width;
+	private final List<E> elements = new ArrayList<>();
+	// indexes of elements by square
+	private final List<List<Integer>> squares;
+
+	/**
+	 * @formatter:off
+	 * @param height world height in squares
+	 * @param width world width in squares
+	 * @formatter:on
+	 */
+	public SpatialGrid(final int height, final int width) {
+		this.height = Math.max(1, height);
+		this.width = Math.max(1, width);
+		squares = new ArrayList<>(this.height * this.width);
+		for (int i = 0; i < this.height * this.width; i++) {
+			squares.add(new ArrayList<>(2));
+		}
+	}
+
+	public void add(final E element) {
+		final int y = clamp(Math.floorDiv(element.position.y, config.squaresize), height);
+		final int x = clamp(Math.floorDiv(element.position.x, config.squaresize), width);
+		squares.get(y * width + x).add(elements.size());
+		elements.add(element);
+	}
+
+	public void addAll(final Iterable<E> elements) {
+		for (final E element : elements) {
+			add(element);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns elements whose square size area intersects with the area between from and to
+	 * @param from top left corner (inclusive)
+	 * @param to bottom right corner (exclusive)
+	 * @return elements in the order they were added
+	 * @formatter:on
+	 */
+	public List<E> query(final Position from, final Position to) {
+		// an element reaches into the next square
+		final int yFrom = clamp(Math.floorDiv(from.y - config.squaresize + 1, config.squaresize), height);
+		final int xFrom = clamp(Math.floorDiv(from.x - config.squaresize + 1, config.squaresize), width);
+		final int yTo = clamp(Math.floorDiv(to.y - 1, config.squaresize), height);
+		final int xTo = clamp(Math.floorDiv(to.x - 1, config.squaresize), width);
+
+		int count = 0;
+		int[] indexes = new int[16];
+		for (int y = yFrom; y <= yTo; y++) {
+			for (int x = xFrom; x <= xTo; x++) {
+				for (final int index : squares.get(y * width + x)) {
+					final Position position = elements.get(index).position;
+					if (position.y + config.squaresize <= from.y || position.y >= to.y
+							|| position.x + config.squaresize <= from.x || position.x >= to.x) {
+						continue;
+					}
+
+					if (count == indexes.length) {
+						indexes = Arrays.copyOf(indexes, count * 2);
+					}
+					indexes[count++] = index;
+				}
+			}
+		}
+
+		Arrays.sort(indexes, 0, count);
+		final List<E> result = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			result.add(elements.get(indexes[i]));
+		}
+		return result;
+	}
+
+	private static int clamp(final int value, final int size) {
+		return Math.max(0, Math.min(size - 1, value));
+	}
+}
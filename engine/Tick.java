@@ -1,13 +1,11 @@
 package engine;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import client.WorldClient;
 import di.DI;
@@ -15,8 +13,9 @@ import engine.gameend.Gameend;
 import helper.Key;
 import helper.Logger;
 import server.WorldServer;
-import user.User;
+import user.InputMailbox;
 import user.User.State;
+import world.element.WorldElement;
 import world.element.movable.Movable;
 import world.element.movable.Player;
 import world.element.unmovable.Exit;
@@ -24,7 +23,8 @@ import world.element.unmovable.Unmovable;
 
 /**
  * @formatter:off
- * Must be called with lock closed
+ * Must be called with lock closed, except getWorldClient
+ * A snapshot of the world is published after every step so it can be read without the lock
  * @formatter:on
  */
 public class Tick {
@@ -33,10 +33,37 @@ public class Tick {
 	private final WorldServer worldServer;
 	public long tickCount = 0;
 	public Gameend gameend;
+	// latest snapshot, replaced as a whole
+	private volatile WorldClient worldClient;
+	// live elements to their copies in worldClient, only used by publish
+	private Map<WorldElement, WorldElement> copies = new IdentityHashMap<>();
 
 	public Tick(final WorldServer worldServer, final Gameend gameend) {
 		this.worldServer = worldServer;
 		this.gameend = gameend;
+		publish();
+	}
+
+	/**
+ 	 * @formatter:off
+	 * Applies the next key state published to the owner's InputMailbox, one per tick
+	 * so a press and release between two ticks is not lost
+	 * unless inputs back up, then the mailbox skips ahead to the newest one
+     * @formatter:on
+	 */
+	public void nextStateInput() {
+		for (final Movable movable : worldServer.movables) {
+			if (movable.owner == null || movable.owner.input == null) {
+				continue;
+			}
+
+			final InputMailbox.Input input = movable.owner.input.poll();
+			if (input == null) {
+				continue;
+			}
+			System.arraycopy(input.keys, 0, movable.keys, 0, Key.KeyType.KeyLength);
+			movable.inputSequence = input.sequence;
+		}
 	}
 
 	/**
@@ -71,11 +98,13 @@ public class Tick {
 	/**
  	 * @formatter:off
 	 * Calculates next state of WorldServer.
-	 * This includes: calling next state of Unmovables and Movables, destroying, animation, game end 
+	 * This includes: applying inputs, calling next state of Unmovables and Movables, destroying, animation, game end 
 	 * @return
  	 * @formatter:on
 	 */
 	public boolean nextState() {
+		nextStateInput();
+
 		final WorldServer nextWorldServer = new WorldServer();
 		nextWorldServer.movables = new LinkedList<>(worldServer.movables);
 		nextWorldServer.unmovables = new LinkedList<>(worldServer.unmovables);
@@ -106,86 +135,114 @@ public class Tick {
 				}
 			}
 			logger.println("Match ended");
+			publish();
 			return false;
 		}
 
 		tickCount++;
 		worldServer.movables = nextWorldServer.movables;
 		worldServer.unmovables = nextWorldServer.unmovables;
+		publish();
 
 		return true;
 	}
 
 	/**
  	 * @formatter:off
-	 * Creates WorldClient which is secure to send to others
+	 * Returns the world as it was at the end of the last step, without the lock
+	 * It is shared by every caller and must not be modified,
+	 * set recipient specific fields on a shallow copy (see WorldClient(WorldClient))
 	 * @return
  	 * @formatter:on
 	 */
 	public WorldClient getWorldClient() {
-		WorldClient worldClient = new WorldClient();
+		return worldClient;
+	}
+
+	/**
+ 	 * @formatter:off
+	 * Publishes a snapshot of worldServer which is secure to send to others
+	 * Elements are copies, the ones which did not change are shared with the previous snapshot
+	 * and so are its lists if none of their elements changed
+ 	 * @formatter:on
+	 */
+	private void publish() {
+		final WorldClient previous = worldClient;
+		final Map<WorldElement, WorldElement> copiesNext = new IdentityHashMap<>();
+
+		final WorldClient next = new WorldClient();
+		next.height = worldServer.height;
+		next.width = worldServer.width;
+		next.tick = tickCount;
 
 		// remove exit if behind box
-		final List<Unmovable> collisionUnmovableS = Collision.getCollisions(worldServer.unmovables,
-				worldServer.exit.position, worldServer.exit, null);
-		if (collisionUnmovableS.size() == 0) {
-			worldClient.exit = worldServer.exit;
-		}
+		final boolean exitVisible = worldServer.exit != null && Collision.getCollisions(worldServer.unmovables,
+				worldServer.exit.position, worldServer.exit, null).size() == 0;
 
-		// unmovables
-		final List<Movable> unmovableOwners = new ArrayList<>();
+		final List<Unmovable> unmovables = new ArrayList<>();
 		for (final Unmovable unmovable : worldServer.unmovables) {
-			// always add owner in order for correct restore
-			unmovableOwners.add(unmovable.owner);
-
-			// don't add exit
-			if (unmovable instanceof Exit && worldClient.exit == null) {
+			if (unmovable instanceof Exit && !exitVisible) {
 				continue;
 			}
-
-			unmovable.owner = null;
-
-			worldClient.unmovables.add(unmovable);
+			unmovables.add(copy(unmovable, copiesNext));
 		}
-
-		// movables
-		final List<User> movableOwners = new ArrayList<>();
+		final List<Movable> movables = new ArrayList<>();
 		for (final Movable movable : worldServer.movables) {
-			// has to send User
-			// - do not leak other things
-			// - can't serialize socket
-			movableOwners.add(movable.owner);
-			worldClient.movables.add(movable);
-
-			if (movable.owner != null) {
-				final User user = new User();
-				user.name = movable.owner.name;
-				movable.owner = user;
-			}
+			movables.add(copy(movable, copiesNext));
 		}
-
-		// deep copy (the maintainable way)
-		try {
-			final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-			final ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
-			objectOutputStream.writeObject(worldClient);
-
-			final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(
-					byteArrayOutputStream.toByteArray());
-			final ObjectInputStream objectInputStream = new ObjectInputStream(byteArrayInputStream);
-			worldClient = (WorldClient) objectInputStream.readObject();
-		} catch (ClassNotFoundException | IOException e) {
-			throw new Error(e);
+		next.unmovables = share(previous == null ? null : previous.unmovables, unmovables);
+		next.movables = share(previous == null ? null : previous.movables, movables);
+		if (exitVisible) {
+			next.exit = copy(worldServer.exit, copiesNext);
 		}
 
-		for (int i = 0; i < movableOwners.size(); i++) {
-			worldServer.movables.get(i).owner = movableOwners.get(i);
+		copies = copiesNext;
+		worldClient = next;
+	}
+
+	/**
+ 	 * @formatter:off
+	 * Returns the copy of worldElement in the previous snapshot if it is still current, a new copy otherwise
+	 * @param <E>
+	 * @param worldElement live element
+	 * @param copiesNext copies of the snapshot being published, worldElement's copy is added
+	 * @return
+ 	 * @formatter:on
+	 */
+	@SuppressWarnings("unchecked")
+	private <E extends WorldElement> E copy(final E worldElement, final Map<WorldElement, WorldElement> copiesNext) {
+		E copy = (E) copiesNext.get(worldElement);
+		if (copy != null) {
+			return copy;
 		}
 
-		for (int i = 0; i < unmovableOwners.size(); i++) {
-			worldServer.unmovables.get(i).owner = unmovableOwners.get(i);
+		copy = (E) copies.get(worldElement);
+		if (copy == null || !worldElement.isCopyCurrent(copy)) {
+			copy = (E) worldElement.copy();
 		}
+		copiesNext.put(worldElement, copy);
+		return copy;
+	}
 
-		return worldClient;
+	/**
+ 	 * @formatter:off
+	 * Returns previous if it has the same elements as next, next unmodifiable otherwise
+	 * @param <E>
+	 * @param previous nullable
+	 * @param next
+	 * @return
+ 	 * @formatter:on
+	 */
+	private static <E> List<E> share(final List<E> previous, final List<E> next) {
+		if (previous != null && previous.size() == next.size()) {
+			boolean same = true;
+			for (int i = 0; i < next.size() && same; i++) {
+				same = previous.get(i) == next.get(i);
+			}
+			if (same) {
+				return previous;
+			}
+		}
+		return Collections.unmodifiableList(next);
 	}
 }
@@ -1,6 +1,10 @@
 package helper;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 
 public class Auth implements Serializable {
@@ -10,6 +14,10 @@ public class Auth implements Serializable {
 		regenerate(length);
 	}
 
+	private Auth(final String value) {
+		this.value = value;
+	}
+
 	/**
 	 * @formatter:off
 	 * Creates secure random string with length of supplied amount
@@ -40,6 +48,9 @@ public class Auth implements Serializable {
 
 		// timing attack safe compare
 		// the length of auth is not a secret
+		if (auth.value.length() != value.length()) {
+			return false;
+		}
 		boolean diff = false;
 		for (int i = 0; i < Math.min(auth.value.length(), value.length()); i++) {
 			if (auth.value.codePointAt(i) != value.codePointAt(i)) {
@@ -49,7 +60,43 @@ public class Auth implements Serializable {
 		return !diff;
 	}
 
+	@Override
+	public int hashCode() {
+		return value.hashCode();
+	}
+
 	public int length() {
 		return value.length();
 	}
+
+	/**
+	 * @formatter:off
+	 * Writes the value raw: a length byte then one byte per character, so at most 255 characters
+	 * @param dataOutput
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public void write(final DataOutput dataOutput) throws IOException {
+		dataOutput.writeByte(value.length());
+		dataOutput.writeBytes(value);
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads an auth written by write
+	 * @param dataInput
+	 * @return
+	 * @throws IOException also if a character is not A-Z
+	 * @formatter:on
+	 */
+	public static Auth read(final DataInput dataInput) throws IOException {
+		final byte[] bytes = new byte[dataInput.readUnsignedByte()];
+		dataInput.readFully(bytes);
+		for (final byte b : bytes) {
+			if (b < 'A' || b > 'Z') {
+				throw new IOException("Invalid auth");
+			}
+		}
+		return new Auth(new String(bytes, StandardCharsets.US_ASCII));
+	}
 }
@@ -24,6 +24,7 @@ public class Config {
 	public double enemyKeyChangePossibility = 0.0015;
 	public long tickRate = 1000 / 58;
 	public transient long tickSecond = 1000 / tickRate; // tick count in one second
+	public long snapshotRate = 1000 / 20;
 	public int authLength = 26;
 	public int nameMaxLength = 15;
 	public int bombCountStart = 1;
@@ -36,6 +37,29 @@ public class Config {
 	public transient String configFileName = Config.defaultConfigFileName;
 	public boolean debug;
 	public int fireMaxSpread = 5;
+	public boolean virtualThreads = false;
+	public long sendBacklogTimeout = 2000;
+	public int senderThreads = 2;
+	public int handshakeThreads = 4;
+	public int handshakeBacklog = 64;
+	public long handshakeStageTimeout = 2000;
+	public long handshakeTimeout = 5000;
+	public long resumeGrace = 10000;
+	public long idleTimeout = 5000;
+	public int receiveRate = 200;
+	public int receiveBurst = 60;
+	public int inputMailboxSize = 8;
+	public boolean udp = false;
+	public long datagramConnectionKeepalive = 500;
+	public int frameRate = 60;
+	public long interpolationDelay = 100;
+	public long pingRate = 1000;
+	public int clockSamples = 8;
+	public int interestMarginSquare = 2;
+	public boolean compression = false;
+	public int frameSizeMax = 4 * 1024 * 1024;
+	public int snapshotBudget = 256;
+	public double priorityMovable = 4;
 
 	public static String defaultIP = "127.0.0.1";
 	public static int defaultPort = 32469;
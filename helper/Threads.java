@@ -0,0 +1,132 @@
+package helper;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import di.DI;
+
+/**
+ * @formatter:off
+ * Starts threads either as platform threads or as virtual threads based on Config
+ * Virtual threads are looked up reflectively so the code still runs on runtimes without them
+ * @formatter:on
+ */
+public class Threads {
+	private static Config config = (Config) DI.get(Config.class);
+	private static Logger logger = (Logger) DI.get(Logger.class);
+
+	// null if not supported or not usable
+	private static volatile Method startVirtualThread = findStartVirtualThread();
+	private static volatile Method newVirtualThreadPerTaskExecutor = findNewVirtualThreadPerTaskExecutor();
+	private static boolean warned = false;
+
+	/**
+	 * @formatter:off
+	 * Returns Thread.startVirtualThread if the runtime supports it
+	 * @return null if not supported
+	 * @formatter:on
+	 */
+	private static Method findStartVirtualThread() {
+		try {
+			return Thread.class.getMethod("startVirtualThread", Runnable.class);
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns Executors.newVirtualThreadPerTaskExecutor if the runtime supports it
+	 * @return null if not supported
+	 * @formatter:on
+	 */
+	private static Method findNewVirtualThreadPerTaskExecutor() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (final NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Falls back to platform threads for good when virtual threads exist but can not be used
+	 * (e.g. they are a preview feature of the runtime and previews are not enabled)
+	 * @param e thrown by the reflective call
+	 * @formatter:on
+	 */
+	private static synchronized void unsupported(final Exception e) {
+		if (startVirtualThread == null) {
+			return;
+		}
+		startVirtualThread = null;
+		newVirtualThreadPerTaskExecutor = null;
+		warned = true;
+		final Throwable cause = e.getCause() == null ? e : e.getCause();
+		logger.printf("Virtual threads can not be used (%s), using platform threads\n", cause.toString());
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether threads started by start() will be virtual
+	 * Becomes false once starting one failed, start a thread first to be sure
+	 * @return
+	 * @formatter:on
+	 */
+	public static boolean isVirtual() {
+		return config.virtualThreads && startVirtualThread != null;
+	}
+
+	/**
+	 * @formatter:off
+	 * Starts runnable in a new thread
+	 * Uses virtual thread if enabled in Config and supported by runtime, platform thread otherwise
+	 * @param runnable
+	 * @return started thread
+	 * @formatter:on
+	 */
+	public static Thread start(final Runnable runnable) {
+		if (config.virtualThreads && startVirtualThread == null && !warned) {
+			warned = true;
+			logger.println("Virtual threads are not supported by this runtime, using platform threads");
+		}
+
+		if (isVirtual()) {
+			try {
+				return (Thread) startVirtualThread.invoke(null, runnable);
+			} catch (final ReflectiveOperationException | RuntimeException e) {
+				unsupported(e);
+			}
+		}
+
+		final Thread thread = new Thread(runnable);
+		thread.start();
+		return thread;
+	}
+
+	/**
+	 * @formatter:off
+	 * Creates executor for short tasks
+	 * Starts a virtual thread per task if enabled in Config and supported by runtime,
+	 * uses size daemon platform threads otherwise
+	 * @param size number of platform threads
+	 * @return
+	 * @formatter:on
+	 */
+	public static ExecutorService newPool(final int size) {
+		if (isVirtual() && newVirtualThreadPerTaskExecutor != null) {
+			try {
+				return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+			} catch (final ReflectiveOperationException | RuntimeException e) {
+				unsupported(e);
+			}
+		}
+
+		return Executors.newFixedThreadPool(size, runnable -> {
+			final Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -0,0 +1,86 @@
+package network;
+
+import java.io.EOFException;
+
+/**
+ * @formatter:off
+ * Reads values written by BitWriter
+ * Not thread safe
+ * @formatter:on
+ */
+public class BitReader {
+	private final byte[] bytes;
+	// number of bits read
+	private long position = 0;
+
+	public BitReader(final byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads value written with the same number of bits
+	 * @param bits 0-64
+	 * @return
+	 * @throws EOFException if there are not enough bits left
+	 * @formatter:on
+	 */
+	public long read(final int bits) throws EOFException {
+		if (position + bits > (long) bytes.length * 8) {
+			throw new EOFException();
+		}
+
+		long value = 0;
+		for (int i = 0; i < bits; i++) {
+			final int bit = (bytes[(int) (position >>> 3)] >>> (7 - (position & 7))) & 1;
+			value = (value << 1) | bit;
+			position++;
+		}
+		return value;
+	}
+
+	/**
+	 * @formatter:off
+	 * Number of bits left
+	 * @return
+	 * @formatter:on
+	 */
+	public long remaining() {
+		return (long) bytes.length * 8 - position;
+	}
+
+	public boolean readBoolean() throws EOFException {
+		return read(1) != 0;
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads value written by writeVarLong
+	 * @return
+	 * @throws EOFException
+	 * @formatter:on
+	 */
+	public long readVarLong() throws EOFException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final long group = read(8);
+			value |= (group & 0x7f) << shift;
+			if ((group & 0x80) == 0) {
+				return value;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads value written by writeSignedVarLong
+	 * @return
+	 * @throws EOFException
+	 * @formatter:on
+	 */
+	public long readSignedVarLong() throws EOFException {
+		final long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,98 @@
+package network;
+
+import java.util.Arrays;
+
+/**
+ * @formatter:off
+ * Writes values with the given number of bits, most significant bit first
+ * Not thread safe
+ * @formatter:on
+ */
+public class BitWriter {
+	private byte[] bytes = new byte[256];
+	// number of bits written
+	private long position = 0;
+
+	/**
+	 * @formatter:off
+	 * Number of bits needed to write values from 0 to max
+	 * @param max
+	 * @return
+	 * @formatter:on
+	 */
+	public static int bitsFor(final long max) {
+		return Math.max(1, 64 - Long.numberOfLeadingZeros(max));
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes lowest bits of value
+	 * @param value must fit into bits
+	 * @param bits 0-64
+	 * @formatter:on
+	 */
+	public void write(final long value, final int bits) {
+		for (int i = bits - 1; i >= 0; i--) {
+			writeBit((value >>> i) & 1);
+		}
+	}
+
+	public void writeBoolean(final boolean value) {
+		writeBit(value ? 1 : 0);
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes unsigned value in groups of 7 bits, small values take 8 bits
+	 * @param value not negative
+	 * @formatter:on
+	 */
+	public void writeVarLong(long value) {
+		while ((value & ~0x7fL) != 0) {
+			write((value & 0x7f) | 0x80, 8);
+			value >>>= 7;
+		}
+		write(value, 8);
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes signed value so that small absolute values take 8 bits
+	 * @param value
+	 * @formatter:on
+	 */
+	public void writeSignedVarLong(final long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	private void writeBit(final long bit) {
+		final int index = (int) (position >>> 3);
+		if (index == bytes.length) {
+			bytes = Arrays.copyOf(bytes, bytes.length * 2);
+		}
+		if (bit != 0) {
+			bytes[index] |= 0x80 >>> (position & 7);
+		}
+		position++;
+	}
+
+	/**
+	 * @formatter:off
+	 * Number of bits written so far
+	 * @return
+	 * @formatter:on
+	 */
+	public long getSize() {
+		return position;
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns bytes written, last byte is padded with zeros
+	 * @return
+	 * @formatter:on
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, (int) ((position + 7) >>> 3));
+	}
+}
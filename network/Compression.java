@@ -0,0 +1,231 @@
+package network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * @formatter:off
+ * Streaming Deflate for connections
+ * Each connection keeps its own Deflater/Inflater, so later messages refer back to earlier ones
+ * Both sides start from the same preset dictionary, so even the first messages compress well
+ * Raw Deflate is used as it allows setting the dictionary before any data
+ * Datagrams can be lost so each one is compressed on its own with the dictionary
+ * @formatter:on
+ */
+public class Compression {
+	// Deflate can not refer back further
+	public static final int dictionarySizeMax = 32 * 1024;
+
+	// statistics of all compressing streams
+	private static final AtomicLong bytesIn = new AtomicLong();
+	private static final AtomicLong bytesOut = new AtomicLong();
+	private static final AtomicLong nanos = new AtomicLong();
+
+	/**
+	 * @formatter:off
+	 * Creates dictionary from a serialized object, typically the first WorldClient of a match
+	 * Only the end is kept if it is too long
+	 * @param object
+	 * @return
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public static byte[] createDictionary(final Object object) throws IOException {
+		final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		final ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+		objectOutputStream.writeObject(object);
+		objectOutputStream.close();
+
+		final byte[] bytes = byteArrayOutputStream.toByteArray();
+		return Arrays.copyOfRange(bytes, Math.max(0, bytes.length - dictionarySizeMax), bytes.length);
+	}
+
+	/**
+	 * @formatter:off
+	 * Wraps stream to decompress what was compressed with the same dictionary
+	 * @param inputStream
+	 * @param dictionary
+	 * @return
+	 * @formatter:on
+	 */
+	public static InputStream inflate(final InputStream inputStream, final byte[] dictionary) {
+		final Inflater inflater = new Inflater(true);
+		inflater.setDictionary(dictionary);
+		return new InflaterInputStream(inputStream, inflater);
+	}
+
+	/**
+	 * @formatter:off
+	 * Wraps stream to compress written data
+	 * Data is only sent when flushed
+	 * @param outputStream
+	 * @param dictionary
+	 * @return
+	 * @formatter:on
+	 */
+	public static OutputStream deflate(final OutputStream outputStream, final byte[] dictionary) {
+		return new DeflateOutputStream(outputStream, dictionary);
+	}
+
+	/**
+	 * @formatter:off
+	 * Compresses a message on its own
+	 * @param deflater raw, reset before use
+	 * @param dictionary
+	 * @param bytes
+	 * @return
+	 * @formatter:on
+	 */
+	static byte[] compress(final Deflater deflater, final byte[] dictionary, final byte[] bytes) {
+		final long started = System.nanoTime();
+		deflater.reset();
+		deflater.setDictionary(dictionary);
+		deflater.setInput(bytes);
+		deflater.finish();
+		final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length / 4 + 16);
+		final byte[] buffer = new byte[8 * 1024];
+		while (!deflater.finished()) {
+			byteArrayOutputStream.write(buffer, 0, deflater.deflate(buffer));
+		}
+		final byte[] compressed = byteArrayOutputStream.toByteArray();
+
+		nanos.addAndGet(System.nanoTime() - started);
+		bytesIn.addAndGet(bytes.length);
+		bytesOut.addAndGet(compressed.length);
+		return compressed;
+	}
+
+	/**
+	 * @formatter:off
+	 * Decompresses a message compressed by compress
+	 * Stops as soon as the output gets longer than sizeMax, so a small message can not inflate into a huge one
+	 * @param inflater raw, reset before use
+	 * @param dictionary
+	 * @param bytes
+	 * @param length
+	 * @param sizeMax longest output accepted
+	 * @return
+	 * @throws DataFormatException if it is malformed or too long
+	 * @formatter:on
+	 */
+	static byte[] decompress(final Inflater inflater, final byte[] dictionary, final byte[] bytes, final int length,
+			final int sizeMax) throws DataFormatException {
+		inflater.reset();
+		inflater.setDictionary(dictionary);
+		inflater.setInput(bytes, 0, length);
+		final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(Math.min(length * 4, sizeMax));
+		final byte[] buffer = new byte[8 * 1024];
+		while (!inflater.finished()) {
+			final int inflated = inflater.inflate(buffer);
+			if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+				throw new DataFormatException("Truncated message");
+			}
+			if (byteArrayOutputStream.size() + inflated > sizeMax) {
+				throw new DataFormatException("Message is too long");
+			}
+			byteArrayOutputStream.write(buffer, 0, inflated);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	/**
+	 * @formatter:off
+	 * Uncompressed bytes divided by compressed bytes written so far
+	 * @return 0 if nothing was written
+	 * @formatter:on
+	 */
+	public static double getRatio() {
+		final long out = bytesOut.get();
+		return out == 0 ? 0 : (double) bytesIn.get() / out;
+	}
+
+	/**
+	 * @formatter:off
+	 * Time spent compressing per uncompressed KiB (us)
+	 * @return 0 if nothing was written
+	 * @formatter:on
+	 */
+	public static double getMicrosPerKiB() {
+		final long in = bytesIn.get();
+		return in == 0 ? 0 : nanos.get() / 1000.0 / (in / 1024.0);
+	}
+
+	/**
+	 * @formatter:off
+	 * Summary for logging
+	 * @return
+	 * @formatter:on
+	 */
+	public static String getStatistics() {
+		return String.format("%d -> %d bytes, ratio %.2f, %.1f us/KiB, %.1f ms total", bytesIn.get(), bytesOut.get(),
+				getRatio(), getMicrosPerKiB(), nanos.get() / 1e6);
+	}
+
+	/**
+	 * @formatter:off
+	 * Compressing stream which only counts time spent in Deflater, not in writing to the socket
+	 * @formatter:on
+	 */
+	private static class DeflateOutputStream extends OutputStream {
+		private final OutputStream outputStream;
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		private final byte[] buffer = new byte[8 * 1024];
+
+		public DeflateOutputStream(final OutputStream outputStream, final byte[] dictionary) {
+			this.outputStream = outputStream;
+			deflater.setDictionary(dictionary);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+			if (length == 0) {
+				return;
+			}
+			deflater.setInput(bytes, offset, length);
+			bytesIn.addAndGet(length);
+			while (!deflater.needsInput()) {
+				deflate(Deflater.NO_FLUSH);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// sync flush returns less than the buffer once everything is out
+			while (deflate(Deflater.SYNC_FLUSH) == buffer.length) {
+			}
+			outputStream.flush();
+		}
+
+		private int deflate(final int flush) throws IOException {
+			final long started = System.nanoTime();
+			final int length = deflater.deflate(buffer, 0, buffer.length, flush);
+			nanos.addAndGet(System.nanoTime() - started);
+
+			if (length > 0) {
+				outputStream.write(buffer, 0, length);
+				bytesOut.addAndGet(length);
+			}
+			return length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// Deflater is not ended, the writer could still be using it
+			outputStream.close();
+		}
+	}
+}
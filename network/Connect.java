@@ -1,18 +1,17 @@
 package network;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
 import java.util.concurrent.Phaser;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import di.DI;
 import helper.Logger;
+import helper.Threads;
 
 public class Connect extends Network {
 	private static Logger logger = (Logger) DI.get(Logger.class);
@@ -21,6 +20,8 @@ public class Connect extends Network {
 	private final Phaser phaser = new Phaser(0);
 	private Connection connection;
 	private Thread thread;
+	// null if not enabled
+	private Datagram datagram;
 
 	/**
 	 * @formatter:off
@@ -39,13 +40,7 @@ public class Connect extends Network {
 			final Socket socket = new Socket();
 			socket.setSoTimeout(1000);
 			socket.connect(new InetSocketAddress(ip, port), 2000);
-			final InputStream inputStream = socket.getInputStream();
-			// ObjectInputStream has to be first as server has to send ObjectXXStream header
-			// first
-			final ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
-			final OutputStream outputStream = socket.getOutputStream();
-			final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-			connection = new Connection(objectInputStream, objectOutputStream, socket);
+			connection = new Connection(socket);
 		} catch (final IOException e) {
 			logger.printf("Couldn't connect to %s:%d\n", ip, port);
 			return false;
@@ -61,8 +56,7 @@ public class Connect extends Network {
 		}
 
 		phaser.register();
-		thread = new Thread(new Receive());
-		thread.start();
+		thread = Threads.start(new Receive());
 		return true;
 	}
 
@@ -74,7 +68,7 @@ public class Connect extends Network {
 		public void run() {
 			while (true) {
 				try {
-					final Object object = receive(connection.objectInputStream);
+					final Object object = receive(connection.frameReader);
 					receive.accept(object);
 				} catch (ClassNotFoundException | IOException e) {
 					logger.println("Couldn't receive from server or stream stopped...stopping");
@@ -94,7 +88,7 @@ public class Connect extends Network {
 	 * @formatter:on
 	 */
 	public void send(final Object... objects) throws IOException {
-		super.send(connection.objectOutputStream, objects);
+		super.send(connection.frameWriter, objects);
 	}
 
 	/**
@@ -106,7 +100,57 @@ public class Connect extends Network {
 	 * @formatter:on
 	 */
 	public Object receive() throws ClassNotFoundException, IOException {
-		return super.receive(connection.objectInputStream);
+		return super.receive(connection.frameReader);
+	}
+
+	/**
+	 * @formatter:off
+	 * Creates datagram transport to the connected server
+	 * @param receive datagram receive handler function
+	 * @param accepted classes of the objects server sends in datagrams
+	 * @throws SocketException
+	 * @formatter:on
+	 */
+	public void connectDatagram(final Consumer<Object> receive, final Class<?>... accepted) throws SocketException {
+		datagram = new Datagram();
+		datagram.accept(accepted);
+		datagram.connect(connection.socket.getInetAddress().getHostAddress(), connection.socket.getPort(),
+				(final SocketAddress address, final Object object) -> {
+					receive.accept(object);
+				});
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns datagram transport
+	 * @return null if not enabled
+	 * @formatter:on
+	 */
+	public Datagram getDatagram() {
+		return datagram;
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends object in a datagram to the server
+	 * @param object
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public void sendDatagram(final Object object) throws IOException {
+		if (!datagram.send(null, object)) {
+			throw new IOException("Object does not fit into a datagram");
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether objects are still received from the server
+	 * @return false if the connection is closed or nothing arrived within its timeout
+	 * @formatter:on
+	 */
+	public boolean isReceiving() {
+		return thread != null && thread.isAlive();
 	}
 
 	/**
@@ -122,8 +166,17 @@ public class Connect extends Network {
 
 	@Override
 	public void close() throws Exception {
+		// connect failed, its socket is already closed
+		if (thread == null) {
+			return;
+		}
+
 		// only close one
 		connection.socket.close();
 		phaser.awaitAdvance(phaser.getPhase());
+
+		if (datagram != null) {
+			datagram.close();
+		}
 	}
 }
@@ -0,0 +1,233 @@
+package network;
+
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.Phaser;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import di.DI;
+import helper.Config;
+import helper.Logger;
+import helper.Threads;
+
+/**
+ * @formatter:off
+ * Unreliable, unordered transport for objects which are replaced frequently (snapshots, inputs)
+ * Each object is sent in its own datagram, handshake and control messages stay on Connect/Listen
+ * @formatter:on
+ */
+public class Datagram extends Network {
+	private static Config config = (Config) DI.get(Config.class);
+	private static Logger logger = (Logger) DI.get(Logger.class);
+
+	// max payload of an UDP datagram
+	public static final int sizeMax = 65507;
+
+	private DatagramSocket socket;
+	private BiConsumer<SocketAddress, Object> receive;
+	private final Phaser phaser = new Phaser(0);
+	// null if datagrams are not compressed
+	private volatile byte[] dictionary;
+	// shared by senders
+	private Deflater deflater;
+	// only used by receiver
+	private Inflater inflater;
+	// classes of serialized objects received, null if only raw KeyStates are
+	private ObjectInputFilter filter;
+
+	/**
+	 * @formatter:off
+	 * Lets serialized objects of classes in datagrams, anyone can send them so nothing else is deserialized
+	 * Without it only raw KeyStates are received
+	 * Has to be called before bind or connect
+	 * @param classes accepted together with their supertypes, none of their fields may hold other objects
+	 * @formatter:on
+	 */
+	public void accept(final Class<?>... classes) {
+		final Set<Class<?>> accepted = Set.of(classes);
+		filter = (final ObjectInputFilter.FilterInfo filterInfo) -> {
+			// descriptors of superclasses are read one deeper
+			if (filterInfo.depth() > 2 || filterInfo.arrayLength() >= 0) {
+				return ObjectInputFilter.Status.REJECTED;
+			}
+			final Class<?> serialClass = filterInfo.serialClass();
+			if (serialClass == null) {
+				return ObjectInputFilter.Status.ALLOWED;
+			}
+			for (final Class<?> acceptedClass : accepted) {
+				if (serialClass.isAssignableFrom(acceptedClass)) {
+					return ObjectInputFilter.Status.ALLOWED;
+				}
+			}
+			return ObjectInputFilter.Status.REJECTED;
+		};
+	}
+
+	/**
+	 * @formatter:off
+	 * Listens for datagrams on port
+	 * @param port
+	 * @param receive receive handler function, called with the address of the sender
+	 * @throws SocketException
+	 * @formatter:on
+	 */
+	public void bind(final int port, final BiConsumer<SocketAddress, Object> receive) throws SocketException {
+		start(new DatagramSocket(port), receive);
+	}
+
+	/**
+	 * @formatter:off
+	 * Creates socket which only sends to and receives from ip:port
+	 * @param ip
+	 * @param port
+	 * @param receive receive handler function
+	 * @throws SocketException
+	 * @formatter:on
+	 */
+	public void connect(final String ip, final int port, final BiConsumer<SocketAddress, Object> receive)
+			throws SocketException {
+		final DatagramSocket datagramSocket = new DatagramSocket();
+		datagramSocket.connect(new InetSocketAddress(ip, port));
+		start(datagramSocket, receive);
+	}
+
+	/**
+	 * @formatter:off
+	 * Compresses datagrams sent and received from now on with dictionary
+	 * The other side has to use the same dictionary
+	 * @param dictionary
+	 * @formatter:on
+	 */
+	public void compress(final byte[] dictionary) {
+		deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		inflater = new Inflater(true);
+		this.dictionary = dictionary;
+	}
+
+	private void start(final DatagramSocket socket, final BiConsumer<SocketAddress, Object> receive) {
+		this.socket = socket;
+		this.receive = receive;
+		phaser.register();
+		Threads.start(new Receive());
+	}
+
+	/**
+	 * Redirecter class to supplied receive handler
+	 */
+	private class Receive implements Runnable {
+		@Override
+		public void run() {
+			final byte[] buffer = new byte[sizeMax];
+			while (!socket.isClosed()) {
+				final DatagramPacket datagramPacket = new DatagramPacket(buffer, buffer.length);
+				try {
+					socket.receive(datagramPacket);
+				} catch (final IOException e) {
+					if (!socket.isClosed()) {
+						logger.println("Couldn't receive datagram...stopping");
+					}
+					break;
+				}
+
+				final Object object;
+				try {
+					object = decode(datagramPacket.getData(), datagramPacket.getLength());
+				} catch (ClassNotFoundException | IOException | DataFormatException e) {
+					logger.printf("Malformed datagram from %s\n", datagramPacket.getSocketAddress().toString());
+					continue;
+				}
+				receive.accept(datagramPacket.getSocketAddress(), object);
+			}
+
+			phaser.arriveAndDeregister();
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends object in a datagram to address
+	 * @param address null if socket is connected
+	 * @param object
+	 * @return false if object does not fit into a datagram
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public boolean send(final SocketAddress address, final Object object) throws IOException {
+		final byte[] bytes = encode(object);
+		if (bytes.length > sizeMax) {
+			return false;
+		}
+
+		final DatagramPacket datagramPacket = new DatagramPacket(bytes, bytes.length);
+		if (address != null) {
+			datagramPacket.setSocketAddress(address);
+		}
+		socket.send(datagramPacket);
+		return true;
+	}
+
+	/**
+	 * @formatter:off
+	 * Encodes object on its own (unless it is Encoded), compresses it if enabled
+	 * @param object
+	 * @return
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	private byte[] encode(final Object object) throws IOException {
+		final byte[] serialized = object instanceof Encoded ? ((Encoded) object).bytes : Encoded.encode(object).bytes;
+
+		final byte[] dictionary = this.dictionary;
+		if (dictionary == null) {
+			return serialized;
+		}
+		synchronized (deflater) {
+			return Compression.compress(deflater, dictionary, serialized);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Deserializes object encoded by encode
+	 * Compressed ones may not inflate to more than Config.frameSizeMax, the same as a frame of a connection
+	 * Serialized ones only if they are of accepted classes
+	 * @param bytes
+	 * @param length
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws DataFormatException
+	 * @formatter:on
+	 */
+	private Object decode(final byte[] bytes, final int length)
+			throws IOException, ClassNotFoundException, DataFormatException {
+		final byte[] dictionary = this.dictionary;
+		if (dictionary == null) {
+			return read(bytes, length);
+		}
+		final byte[] decompressed = Compression.decompress(inflater, dictionary, bytes, length, config.frameSizeMax);
+		return read(decompressed, decompressed.length);
+	}
+
+	private Object read(final byte[] bytes, final int length) throws IOException, ClassNotFoundException {
+		if (filter == null && !Encoded.isRaw(bytes, 0, length)) {
+			throw new IOException("Not a KeyState");
+		}
+		return Encoded.read(bytes, 0, length, filter);
+	}
+
+	@Override
+	public void close() {
+		socket.close();
+		phaser.awaitAdvance(phaser.getPhase());
+	}
+}
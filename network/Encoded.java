@@ -0,0 +1,137 @@
+package network;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * @formatter:off
+ * Object serialized ahead of sending
+ * Writers put its bytes on the wire as they are, the receiver gets the original object
+ * so the serialization can be done on any thread and not by the one writing to the socket
+ * Small frequent messages are encoded raw behind a type tag instead of by Java serialization,
+ * the tag never equals the first byte of a serialization stream (0xAC), so both can share a frame
+ * Immutable
+ * @formatter:on
+ */
+public final class Encoded {
+	static final byte tagKeyState = 1;
+
+	// same as write on a fresh stream
+	final byte[] bytes;
+
+	private Encoded(final byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * @formatter:off
+	 * Serializes object
+	 * @param object must not be modified during the call
+	 * @return
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public static Encoded encode(final Object object) throws IOException {
+		final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		write(object, byteArrayOutputStream);
+		return new Encoded(byteArrayOutputStream.toByteArray());
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes object raw if it has a type tag, otherwise serialized
+	 * @param object must not be modified during the call
+	 * @param outputStream not closed
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	static void write(final Object object, final OutputStream outputStream) throws IOException {
+		if (object instanceof KeyState) {
+			final DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+			dataOutputStream.writeByte(tagKeyState);
+			((KeyState) object).write(dataOutputStream);
+			dataOutputStream.flush();
+			return;
+		}
+
+		final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
+		objectOutputStream.writeObject(object);
+		objectOutputStream.flush();
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads an object written by write
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @throws IOException also if a raw object has trailing bytes
+	 * @throws ClassNotFoundException
+	 * @formatter:on
+	 */
+	static Object read(final byte[] bytes, final int offset, final int length)
+			throws IOException, ClassNotFoundException {
+		return read(bytes, offset, length, null);
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads an object written by write, serialized ones only if filter lets them
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @param filter null if serialized objects are not filtered
+	 * @return
+	 * @throws IOException also if a raw object has trailing bytes or filter rejected a class
+	 * @throws ClassNotFoundException
+	 * @formatter:on
+	 */
+	static Object read(final byte[] bytes, final int offset, final int length, final ObjectInputFilter filter)
+			throws IOException, ClassNotFoundException {
+		if (isRaw(bytes, offset, length)) {
+			final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes, offset + 1, length - 1);
+			final KeyState keyState = KeyState.read(new DataInputStream(byteArrayInputStream));
+			if (byteArrayInputStream.available() != 0) {
+				throw new IOException("Trailing bytes");
+			}
+			return keyState;
+		}
+		final ObjectInputStream objectInputStream = new ObjectInputStream(
+				new ByteArrayInputStream(bytes, offset, length));
+		if (filter != null) {
+			objectInputStream.setObjectInputFilter(filter);
+		}
+		return objectInputStream.readObject();
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells if bytes hold a raw object, which read decodes without Java serialization
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 * @formatter:on
+	 */
+	static boolean isRaw(final byte[] bytes, final int offset, final int length) {
+		return length > 0 && bytes[offset] == tagKeyState;
+	}
+
+	/**
+	 * @formatter:off
+	 * Size of the serialized object
+	 * @return bytes
+	 * @formatter:on
+	 */
+	public int size() {
+		return bytes.length;
+	}
+}
@@ -0,0 +1,129 @@
+package network;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * @formatter:off
+ * Reads frames written by FrameWriter
+ * The whole frame is read into a reused buffer before it is deserialized
+ * so frames can also be skipped without deserializing them
+ * Nothing is read beyond the frame, so the stream can be wrapped differently between frames (e.g. compression)
+ * Not thread safe
+ * @formatter:on
+ */
+public class FrameReader {
+	public static final int headerSize = 4;
+	static final byte[] emptyHeader = new byte[headerSize];
+
+	private final InputStream inputStream;
+	private final int sizeMax;
+	private final byte[] header = new byte[headerSize];
+	private byte[] buffer = new byte[8 * 1024];
+	// of the frame in buffer
+	private int size = 0;
+
+	/**
+	 * @formatter:off
+	 * @param inputStream
+	 * @param sizeMax longer frames are rejected before reading them
+	 * @formatter:on
+	 */
+	public FrameReader(final InputStream inputStream, final int sizeMax) {
+		this.inputStream = inputStream;
+		this.sizeMax = sizeMax;
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads the next frame, blocks until it fully arrives
+	 * @return
+	 * @throws IOException also if frame is too long
+	 * @throws ClassNotFoundException
+	 * @formatter:on
+	 */
+	public Object read() throws IOException, ClassNotFoundException {
+		readFrame();
+		return deserialize();
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads the next frame without deserializing it, blocks until it fully arrives
+	 * @throws IOException also if frame is too long
+	 * @formatter:on
+	 */
+	public void readFrame() throws IOException {
+		readFully(header, headerSize);
+		final int size = ((header[0] & 0xff) << 24) | ((header[1] & 0xff) << 16) | ((header[2] & 0xff) << 8)
+				| (header[3] & 0xff);
+		if (size < 0 || size > sizeMax) {
+			throw new IOException(String.format("Frame size %d is invalid", size));
+		}
+
+		if (buffer.length < size) {
+			buffer = new byte[Math.max(size, buffer.length * 2)];
+		}
+		this.size = 0;
+		readFully(buffer, size);
+		this.size = size;
+	}
+
+	/**
+	 * @formatter:off
+	 * Deserializes the frame read last by readFrame
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @formatter:on
+	 */
+	public Object deserialize() throws IOException, ClassNotFoundException {
+		return Encoded.read(buffer, 0, size);
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells if the frame read last by readFrame is a raw KeyState, so a newer one supersedes it
+	 * @return
+	 * @formatter:on
+	 */
+	public boolean isKeyState() {
+		return size > 0 && buffer[0] == Encoded.tagKeyState;
+	}
+
+	/**
+	 * @formatter:off
+	 * Copies the frame read last by readFrame so it can be deserialized later
+	 * @return
+	 * @formatter:on
+	 */
+	public byte[] copyFrame() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	/**
+	 * @formatter:off
+	 * Deserializes a frame copied by copyFrame
+	 * @param frame
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @formatter:on
+	 */
+	public static Object deserialize(final byte[] frame) throws IOException, ClassNotFoundException {
+		return Encoded.read(frame, 0, frame.length);
+	}
+
+	private void readFully(final byte[] bytes, final int length) throws IOException {
+		int read = 0;
+		while (read < length) {
+			final int count = inputStream.read(bytes, read, length - read);
+			if (count < 0) {
+				throw new EOFException();
+			}
+			read += count;
+		}
+	}
+}
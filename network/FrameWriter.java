@@ -0,0 +1,77 @@
+package network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * @formatter:off
+ * Writes objects as length prefixed frames: 4 byte big endian length then an object written by Encoded
+ * All objects of a write are built in a reused buffer and written to the stream at once,
+ * so a tick's messages become a single write and flush instead of many small ones
+ * Encoded objects are copied as they are
+ * Thread safe
+ * @formatter:on
+ */
+public class FrameWriter {
+	/**
+	 * ByteArrayOutputStream giving access to its array
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		public Buffer() {
+			super(8 * 1024);
+		}
+
+		public byte[] array() {
+			return buf;
+		}
+
+		/**
+		 * @formatter:off
+		 * Overwrites 4 bytes at position with value
+		 * @param position
+		 * @param value
+		 * @formatter:on
+		 */
+		public void setInt(final int position, final int value) {
+			buf[position] = (byte) (value >>> 24);
+			buf[position + 1] = (byte) (value >>> 16);
+			buf[position + 2] = (byte) (value >>> 8);
+			buf[position + 3] = (byte) value;
+		}
+	}
+
+	private final OutputStream outputStream;
+	private final Buffer buffer = new Buffer();
+
+	public FrameWriter(final OutputStream outputStream) {
+		this.outputStream = outputStream;
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes each object in its own frame with a single write and flush
+	 * @param objects
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	public synchronized void write(final Object... objects) throws IOException {
+		buffer.reset();
+		for (final Object object : objects) {
+			final int start = buffer.size();
+			buffer.write(FrameReader.emptyHeader);
+
+			if (object instanceof Encoded) {
+				buffer.write(((Encoded) object).bytes);
+				buffer.setInt(start, buffer.size() - start - FrameReader.headerSize);
+				continue;
+			}
+
+			Encoded.write(object, buffer);
+			buffer.setInt(start, buffer.size() - start - FrameReader.headerSize);
+		}
+
+		outputStream.write(buffer.array(), 0, buffer.size());
+		outputStream.flush();
+	}
+}
@@ -0,0 +1,135 @@
+package network;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import helper.Auth;
+import helper.Key;
+
+/**
+ * @formatter:off
+ * Keys pressed by a client in a tick with the sequence number of the input
+ * and the snapshots received so far, so the server knows which ones were lost
+ * Not serialized by Java but encoded raw (see Encoded): a type tag, the keys as a bitmask,
+ * the sequence as a varint, the ack and the inverted received bits as varints (nothing lost => 1 byte)
+ * and the auth if any, so it is only a few bytes
+ * @formatter:on
+ */
+public class KeyState {
+	public boolean[] keys = new boolean[Key.KeyType.KeyLength];
+	public long sequence;
+	// sequence of the newest snapshot received, -1 if none
+	public long ack = -1;
+	// bit i is set if snapshot ack - 1 - i was received
+	public long received;
+	// only needed in datagrams, a connection already belongs to a user
+	public Auth auth;
+
+	public KeyState() {
+	}
+
+	/**
+	 * @formatter:off
+	 * @param keys copied
+	 * @param sequence
+	 * @param auth null if sent over the connection
+	 * @formatter:on
+	 */
+	public KeyState(final boolean[] keys, final long sequence, final Auth auth) {
+		System.arraycopy(keys, 0, this.keys, 0, Key.KeyType.KeyLength);
+		this.sequence = sequence;
+		this.auth = auth;
+	}
+
+	/**
+	 * @formatter:off
+	 * Writes the body, without the type tag
+	 * @param dataOutput
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	void write(final DataOutput dataOutput) throws IOException {
+		int mask = 0;
+		for (int i = 0; i < Key.KeyType.KeyLength; i++) {
+			if (keys[i]) {
+				mask |= 1 << i;
+			}
+		}
+		// the bits after the keys tell whether an auth and an ack follow
+		if (auth != null) {
+			mask |= 1 << Key.KeyType.KeyLength;
+		}
+		if (ack >= 0) {
+			mask |= 1 << (Key.KeyType.KeyLength + 1);
+		}
+		dataOutput.writeByte(mask);
+
+		writeVarLong(dataOutput, sequence);
+		if (ack >= 0) {
+			writeVarLong(dataOutput, ack);
+			writeVarLong(dataOutput, ~received);
+		}
+
+		if (auth != null) {
+			auth.write(dataOutput);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Reads a body written by write
+	 * @param dataInput
+	 * @return
+	 * @throws IOException
+	 * @formatter:on
+	 */
+	static KeyState read(final DataInput dataInput) throws IOException {
+		final KeyState keyState = new KeyState();
+
+		final int mask = dataInput.readUnsignedByte();
+		if (mask >>> (Key.KeyType.KeyLength + 2) != 0) {
+			throw new IOException("Unknown key");
+		}
+		for (int i = 0; i < Key.KeyType.KeyLength; i++) {
+			keyState.keys[i] = (mask & 1 << i) != 0;
+		}
+
+		keyState.sequence = readVarLong(dataInput);
+		if ((mask & 1 << (Key.KeyType.KeyLength + 1)) != 0) {
+			keyState.ack = readVarLong(dataInput);
+			if (keyState.ack < 0) {
+				throw new IOException("Invalid ack");
+			}
+			keyState.received = ~readVarLong(dataInput);
+		}
+
+		if ((mask & 1 << Key.KeyType.KeyLength) != 0) {
+			keyState.auth = Auth.read(dataInput);
+		}
+		return keyState;
+	}
+
+	private static void writeVarLong(final DataOutput dataOutput, final long value) throws IOException {
+		long rest = value;
+		while ((rest & ~0x7fL) != 0) {
+			dataOutput.writeByte((int) (rest & 0x7f) | 0x80);
+			rest >>>= 7;
+		}
+		dataOutput.writeByte((int) rest);
+	}
+
+	private static long readVarLong(final DataInput dataInput) throws IOException {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			if (shift > 63) {
+				throw new IOException("Varint is too long");
+			}
+			final int b = dataInput.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+}
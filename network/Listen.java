@@ -1,22 +1,29 @@
 package network;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.LinkedList;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 import di.DI;
+import helper.Config;
 import helper.Logger;
+import helper.Threads;
 
 public class Listen extends Network {
+	private static Config config = (Config) DI.get(Config.class);
 	private static Logger logger = (Logger) DI.get(Logger.class);
 
 	private ListenModel listenModel = new ListenModel();
@@ -26,7 +33,16 @@ public class Listen extends Network {
 	private Function<Connection, Boolean> handshake;
 	private BiConsumer<Connection, Object> receive;
 	private Consumer<Connection> disconnect;
+	private Consumer<Connection> handshakeFailed;
 	private Phaser phaser;
+	// handshakes run here, not on the accepting thread
+	private ExecutorService handshakes;
+	// running and queued handshakes
+	private Semaphore handshakesPending;
+	// closes sockets of handshakes running for too long, delivers frames held back by the rate limit
+	private Timer timer;
+	// null if not enabled
+	private Datagram datagram;
 
 	/**
 	 * @formatter:off
@@ -39,11 +55,30 @@ public class Listen extends Network {
 	 */
 	public void listen(final int port, final Function<Connection, Boolean> handshake,
 			final BiConsumer<Connection, Object> receive, final Consumer<Connection> disconnect) {
+		listen(port, handshake, receive, disconnect, (final Connection connection) -> {
+		});
+	}
+
+	/**
+	 * @formatter:off
+	 * Creates listener for connections
+	 * @param port
+	 * @param handshake handshake handler function
+	 * @param receive receive handler function
+	 * @param disconnect client disconnect handler function, only called after a successful handshake
+	 * @param handshakeFailed handler function of a connection whose handshake failed,
+	 *        called after handshake in case it registered the connection already
+	 * @formatter:on
+	 */
+	public void listen(final int port, final Function<Connection, Boolean> handshake,
+			final BiConsumer<Connection, Object> receive, final Consumer<Connection> disconnect,
+			final Consumer<Connection> handshakeFailed) {
 		listenModel.connections = new LinkedList<>();
 		this.port = port;
 		this.handshake = handshake;
 		this.receive = receive;
 		this.disconnect = disconnect;
+		this.handshakeFailed = handshakeFailed;
 
 		// blocking accept => new thread
 		phaser = new Phaser(0);
@@ -53,8 +88,33 @@ public class Listen extends Network {
 		} catch (final IOException e1) {
 			throw new Error(e1);
 		}
-		final Thread thread = new Thread(this::handshake);
-		thread.start();
+		handshakes = Threads.newPool(config.handshakeThreads);
+		handshakesPending = new Semaphore(config.handshakeThreads + config.handshakeBacklog);
+		timer = new Timer(true);
+		Threads.start(this::accept);
+	}
+
+	/**
+	 * @formatter:off
+	 * Also listens for datagrams on the same port
+	 * Objects queued by sendLatest are sent in datagrams to connections with a datagramAddress
+	 * @param receive datagram receive handler function, called with the address of the sender
+	 * @throws SocketException
+	 * @formatter:on
+	 */
+	public void listenDatagram(final BiConsumer<SocketAddress, Object> receive) throws SocketException {
+		datagram = new Datagram();
+		datagram.bind(port, receive);
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns datagram transport
+	 * @return null if not enabled
+	 * @formatter:on
+	 */
+	public Datagram getDatagram() {
+		return datagram;
 	}
 
 	/**
@@ -62,10 +122,26 @@ public class Listen extends Network {
 	 * Connection manager class
 	 * Each class is managed in a new thread
 	 * Disconnecting client is also managed here
+	 * A connection nothing arrives on for Config.idleTimeout is dead or idle and is disconnected,
+	 * clients keep it alive with Pings
+	 * KeyStates arriving faster than Config.receiveRate are coalesced without deserializing them:
+	 * only the newest one over the rate is kept and delivered as soon as the next token is available,
+	 * unless a KeyState within the rate arrives first and supersedes it (it carries the whole key state)
+	 * A held KeyState is delivered by the timer, so it can arrive right after a newer frame
+	 * Other frames (Pings, renames...) are never dropped, over the rate reading waits for the next token
+	 * so the sender is slowed down by TCP
 	 * @formatter:on
 	 */
 	private class Receive implements Runnable {
 		private final Connection connection;
+		// guarded by this
+		private final TokenBucket tokenBucket = new TokenBucket(config.receiveRate, config.receiveBurst,
+				System.currentTimeMillis());
+		// newest frame over the rate, null if none, guarded by this
+		private byte[] held = null;
+		// delivery of held is scheduled, guarded by this
+		private boolean heldScheduled = false;
+		private long coalesced = 0;
 
 		public Receive(final Connection connection) {
 			this.connection = connection;
@@ -77,9 +153,30 @@ public class Listen extends Network {
 			// threads), just handle exceptions as close
 			while (!listenModel.serverSocket.isClosed()) {
 				try {
-					final Object object = receive(connection.objectInputStream);
+					connection.frameReader.readFrame();
+					if (!connection.frameReader.isKeyState()) {
+						awaitToken();
+					} else {
+						synchronized (this) {
+							if (!tokenBucket.tryTake(System.currentTimeMillis())) {
+								hold();
+								continue;
+							}
+							if (held != null) {
+								held = null;
+								coalesced++;
+							}
+						}
+					}
+
+					final Object object = connection.frameReader.deserialize();
 					Listen.this.receive.accept(connection, object);
-				} catch (ClassNotFoundException | IOException e) {
+				} catch (final SocketTimeoutException e) {
+					logger.printf("Nothing received for %d ms, disconnecting %s\n", config.idleTimeout,
+							connection.toString());
+					disconnect();
+					break;
+				} catch (ClassNotFoundException | IOException | InterruptedException e) {
 					disconnect();
 					break;
 				}
@@ -88,7 +185,105 @@ public class Listen extends Network {
 			phaser.arriveAndDeregister();
 		}
 
+		/**
+		 * @formatter:off
+		 * Takes a token, waits until there is one
+		 * @throws InterruptedException
+		 * @formatter:on
+		 */
+		private void awaitToken() throws InterruptedException {
+			while (true) {
+				final long wait;
+				synchronized (this) {
+					if (tokenBucket.tryTake(System.currentTimeMillis())) {
+						return;
+					}
+					wait = tokenBucket.getWait(System.currentTimeMillis());
+				}
+				Thread.sleep(Math.max(1, wait));
+			}
+		}
+
+		/**
+		 * @formatter:off
+		 * Keeps the frame read last instead of the one held so far
+		 * and schedules its delivery for when the next token is available
+		 * Must be called with lock closed
+		 * @formatter:on
+		 */
+		private void hold() {
+			if (held != null) {
+				coalesced++;
+			} else if (coalesced == 0) {
+				logger.printf("Receiving too fast, coalescing frames of %s\n", connection.toString());
+			}
+			held = connection.frameReader.copyFrame();
+			scheduleHeld();
+		}
+
+		/**
+		 * @formatter:off
+		 * Schedules delivery of held for when the next token is available unless it is already scheduled
+		 * Must be called with lock closed
+		 * @formatter:on
+		 */
+		private void scheduleHeld() {
+			if (heldScheduled) {
+				return;
+			}
+
+			try {
+				timer.schedule(new TimerTask() {
+					@Override
+					public void run() {
+						deliverHeld();
+					}
+				}, Math.max(1, tokenBucket.getWait(System.currentTimeMillis())));
+				heldScheduled = true;
+			} catch (final IllegalStateException e) {
+				// listen is closing
+			}
+		}
+
+		/**
+		 * Delivers the held frame if it is still there
+		 */
+		private void deliverHeld() {
+			final byte[] frame;
+			synchronized (this) {
+				heldScheduled = false;
+				if (held == null || connection.socket.isClosed()) {
+					return;
+				}
+				if (!tokenBucket.tryTake(System.currentTimeMillis())) {
+					scheduleHeld();
+					return;
+				}
+				frame = held;
+				held = null;
+			}
+
+			final Object object;
+			try {
+				object = FrameReader.deserialize(frame);
+			} catch (ClassNotFoundException | IOException e) {
+				// receiving thread notices and disconnects
+				try {
+					connection.close();
+				} catch (final Exception e1) {
+					e1.printStackTrace();
+				}
+				return;
+			}
+			Listen.this.receive.accept(connection, object);
+		}
+
 		public void disconnect() {
+			synchronized (this) {
+				if (coalesced != 0) {
+					logger.printf("Coalesced %d frames of %s\n", coalesced, connection.toString());
+				}
+			}
 			synchronized (listenModel) {
 				try {
 					// disconnect first to prevent using connection after close but before
@@ -106,11 +301,11 @@ public class Listen extends Network {
 
 	/**
 	 * @formatter:off
-	 * Listens for new connection then initiates handshake
-	 * If successful new Receive is created for connection
+	 * Listens for new connections and hands them over to handshakes
+	 * Never waits for a handshake, a connection is refused if too many of them are pending
 	 * @formatter:on
 	 */
-	public void handshake() {
+	private void accept() {
 		while (!listenModel.serverSocket.isClosed()) {
 			Socket socket;
 			try {
@@ -126,62 +321,190 @@ public class Listen extends Network {
 				}
 			}
 
-			// do not stop if a clients fails to connect => try here
-			// server might be stopping => closing sockets => lock before accepting new
-			synchronized (listenModel) {
-				// between this and previous block lock could have been used
-				if (listenModel.serverSocket.isClosed()) {
-					break;
-				}
+			if (!handshakesPending.tryAcquire()) {
+				logger.printf("Too many pending handshakes, refusing %s:%d\n", Network.getIP(socket),
+						Network.getPort(socket));
+				close(socket);
+				continue;
+			}
+			phaser.register();
+			try {
+				handshakes.execute(() -> {
+					try {
+						handshake(socket);
+					} finally {
+						handshakesPending.release();
+						phaser.arriveAndDeregister();
+					}
+				});
+			} catch (final RejectedExecutionException e) {
+				// closing
+				handshakesPending.release();
+				phaser.arriveAndDeregister();
+				close(socket);
+			}
+		}
+
+		// has to be outside of exception handle to always decrement
+		phaser.arriveAndDeregister();
+	}
+
+	/**
+	 * @formatter:off
+	 * Initiates handshake on socket, runs on handshakes without holding the lock
+	 * Each read of the handshake has to arrive within Config.handshakeStageTimeout
+	 * and the whole of it within Config.handshakeTimeout, otherwise the socket is closed
+	 * If successful new Receive is created for connection
+	 * @param socket
+	 * @formatter:on
+	 */
+	private void handshake(final Socket socket) {
+		final Connection connection;
+		// server might be stopping => closing sockets => lock before adding new one
+		synchronized (listenModel) {
+			if (listenModel.serverSocket.isClosed()) {
+				close(socket);
+				return;
+			}
+			try {
+				socket.setSoTimeout((int) config.handshakeStageTimeout);
+				connection = new Connection(socket);
+			} catch (final IOException e) {
+				logger.printf("Client failed to connect: %s:%d\n", Network.getIP(socket), Network.getPort(socket));
+				close(socket);
+				return;
+			}
+			// closed with the others if server stops during handshake
+			listenModel.connections.add(connection);
+		}
+
+		final TimerTask timeout = new TimerTask() {
+			@Override
+			public void run() {
+				logger.printf("Handshake timed out %s\n", connection.toString());
+				close(socket);
+			}
+		};
+		timer.schedule(timeout, config.handshakeTimeout);
 
+		boolean successful = false;
+		try {
+			successful = handshake.apply(connection);
+		} catch (final Exception e) {
+			logger.printf("Client failed to connect: %s:%d\n", Network.getIP(socket), Network.getPort(socket));
+			e.printStackTrace();
+		}
+		timeout.cancel();
+
+		synchronized (listenModel) {
+			if (successful && !socket.isClosed() && !listenModel.serverSocket.isClosed()) {
 				try {
-					// ObjectOutputStream has to be first as server has to send ObjectXXStream
-					// header first
-					final OutputStream outputStream = socket.getOutputStream();
-					final ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-					final InputStream inputStream = socket.getInputStream();
-					final ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
-					final Connection connection = new Connection(objectInputStream, objectOutputStream, socket);
-					listenModel.connections.add(connection);
-
-					if (handshake.apply(connection)) {
-						logger.printf("Handshake with server successful %s\n", connection.toString());
-
-						phaser.register();
-						final Thread thread = new Thread(new Receive(connection));
-						thread.start();
-					} else {
-						logger.printf("Handshake with server failed %s\n", connection.toString());
+					// idle connections are reaped by Receive
+					socket.setSoTimeout((int) config.idleTimeout);
 
-						socket.close();
-					}
-				} catch (final Exception e) {
-					logger.printf("Client failed to connect: %s:%d\n", Network.getIP(socket), Network.getPort(socket));
-					e.printStackTrace();
+					logger.printf("Handshake with server successful %s\n", connection.toString());
+					connection.outbox = new Outbox(this, connection);
+
+					phaser.register();
+					Threads.start(new Receive(connection));
+					return;
+				} catch (final IOException e) {
+					// closed meanwhile
 				}
 			}
+
+			logger.printf("Handshake with server failed %s\n", connection.toString());
+			// handshake might have registered the connection already
+			handshakeFailed.accept(connection);
+			close(socket);
+			listenModel.connections.remove(connection);
 		}
+	}
 
-		// has to be outside of exception handle to always decrement
-		phaser.arriveAndDeregister();
+	/**
+	 * @formatter:off
+	 * Closes socket which is not needed any more
+	 * @param socket
+	 * @formatter:on
+	 */
+	private static void close(final Socket socket) {
+		try {
+			socket.close();
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
 	}
 
 	@Override
 	public void close() throws Exception {
+		// listen failed
+		if (listenModel.serverSocket == null) {
+			return;
+		}
+
 		// do not let new sockets to be added to list
 		synchronized (listenModel) {
-			// only close one of objectOutputStream, objectInputStream
+			// let writers finish the last queued objects (e.g. game end)
+			final long deadline = System.currentTimeMillis() + config.sendBacklogTimeout;
+			for (final Connection connection : listenModel.connections) {
+				if (connection.outbox != null) {
+					connection.outbox.awaitWritten(deadline);
+				}
+			}
+
+			// closing socket closes its streams
 			for (final Connection connection : listenModel.connections) {
 				connection.close();
 			}
 			listenModel.serverSocket.close();
 		}
+		handshakes.shutdown();
 		phaser.awaitAdvance(phaser.getPhase());
+		timer.cancel();
+
+		if (datagram != null) {
+			datagram.close();
+		}
 	}
 
 	/**
 	 * @formatter:off
-	 * Send objects to all connected clients
+	 * Queues objects to be sent to connection by its own writer, replacing the ones not yet written
+	 * Does not block, objects offered before the handshake finished are ignored
+	 * @param connection
+	 * @param unreliable objects may be sent in a datagram if the connection has a datagramAddress
+	 * @param sequence objects older than the ones already queued are refused
+	 * @param objects must not be modified after this call
+	 * @formatter:on
+	 */
+	public void sendLatest(final Connection connection, final boolean unreliable, final long sequence,
+			final Object... objects) {
+		final Outbox outbox = connection.outbox;
+		if (outbox == null) {
+			return;
+		}
+		outbox.offer(unreliable, sequence, objects);
+	}
+
+	/**
+	 * @formatter:off
+	 * Queues a control object to be sent to connection by its own writer, it is never replaced
+	 * Does not block, objects offered before the handshake finished are ignored
+	 * @param connection
+	 * @param object must not be modified after this call
+	 * @formatter:on
+	 */
+	public void sendControl(final Connection connection, final Object object) {
+		final Outbox outbox = connection.outbox;
+		if (outbox == null) {
+			return;
+		}
+		outbox.offerControl(object);
+	}
+
+	/**
+	 * @formatter:off
+	 * Send objects to all connected clients which finished their handshake
 	 * @param objects
 	 * @throws IOException
 	 * @formatter:on
@@ -189,7 +512,11 @@ public class Listen extends Network {
 	public void send(final Object... objects) throws IOException {
 		synchronized (listenModel) {
 			for (final Connection connection : listenModel.connections) {
-				super.send(connection.objectOutputStream, objects);
+				// would interleave with the handshake
+				if (connection.outbox == null) {
+					continue;
+				}
+				super.send(connection.frameWriter, objects);
 			}
 		}
 	}
@@ -1,39 +1,39 @@
 package network;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketAddress;
+
+import di.DI;
+import helper.Config;
 
 public abstract class Network implements AutoCloseable {
+	private static Config config = (Config) DI.get(Config.class);
+
 	/**
 	 * @formatter:off
-	 * Send objects to ObjectOutputStream
-	 * Fixes object caching
-	 * @param objectOutputStream
+	 * Send objects in frames with a single write
+	 * @param frameWriter
 	 * @param objects
 	 * @throws IOException
 	 * @formatter:on
 	 */
-	public void send(final ObjectOutputStream objectOutputStream, final Object... objects) throws IOException {
-		objectOutputStream.reset();
-		for (final Object object : objects) {
-			objectOutputStream.writeObject(object);
-		}
+	public void send(final FrameWriter frameWriter, final Object... objects) throws IOException {
+		frameWriter.write(objects);
 	}
 
 	/**
 	 * @formatter:off
-	 * Gets object from objectInputStream
-	 * @param objectInputStream
+	 * Gets object from the next frame
+	 * @param frameReader
 	 * @return
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 * @formatter:on
 	 */
-	public Object receive(final ObjectInputStream objectInputStream) throws IOException, ClassNotFoundException {
-		return objectInputStream.readObject();
+	public Object receive(final FrameReader frameReader) throws IOException, ClassNotFoundException {
+		return frameReader.read();
 	}
 
 	/**
@@ -63,28 +63,49 @@ public abstract class Network implements AutoCloseable {
 
 	/**
 	 * @formatter:off
-	 * Manages a connection by grouping ObjectXXStreams and socket together and
+	 * Manages a connection by grouping frame reader, writer and socket together and
 	 * calulating ip and port
+	 * Frames are written at once => Nagle's algorithm would only delay them
 	 * @formatter:on
 	 */
 	public static class Connection implements AutoCloseable {
-		public ObjectInputStream objectInputStream;
-		public ObjectOutputStream objectOutputStream;
+		public FrameReader frameReader;
+		public FrameWriter frameWriter;
 		public Socket socket;
 		public String ip;
 		public int port;
+		// null until handshake finishes
+		public volatile Outbox outbox;
+		// where datagrams should be sent, null if client did not register one
+		public volatile SocketAddress datagramAddress;
 
-		public Connection(final ObjectInputStream objectInputStream, final ObjectOutputStream objectOutputStream,
-				final Socket socket) {
-			this.objectInputStream = objectInputStream;
-			this.objectOutputStream = objectOutputStream;
+		public Connection(final Socket socket) throws IOException {
+			socket.setTcpNoDelay(true);
+			this.frameReader = new FrameReader(socket.getInputStream(), config.frameSizeMax);
+			this.frameWriter = new FrameWriter(socket.getOutputStream());
 			this.socket = socket;
 			this.ip = Network.getIP(socket);
 			this.port = Network.getPort(socket);
 		}
 
+		/**
+		 * @formatter:off
+		 * Compresses everything sent and received from now on
+		 * Both sides have to call it at the same point of the handshake with the same dictionary
+		 * @param dictionary
+		 * @throws IOException
+		 * @formatter:on
+		 */
+		public void compress(final byte[] dictionary) throws IOException {
+			frameWriter = new FrameWriter(Compression.deflate(socket.getOutputStream(), dictionary));
+			frameReader = new FrameReader(Compression.inflate(socket.getInputStream(), dictionary), config.frameSizeMax);
+		}
+
 		@Override
 		public void close() throws Exception {
+			if (outbox != null) {
+				outbox.close();
+			}
 			socket.close();
 		}
 
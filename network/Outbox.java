@@ -0,0 +1,254 @@
+package network;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import di.DI;
+import helper.Config;
+import helper.Logger;
+import helper.Threads;
+import network.Network.Connection;
+
+/**
+ * @formatter:off
+ * Outbound queue of a connection with its own writer thread
+ * Only the latest objects are kept: offering while the previous ones are not yet written replaces them
+ * Objects older than the ones offered before are refused, senders may finish out of order
+ * A connection which is stuck in a write for longer than Config.sendBacklogTimeout is closed
+ * Single unreliable objects are sent in a datagram if the connection registered a datagram address
+ * but at least every Config.datagramConnectionKeepalive one is sent over the connection so it does not time out
+ * Control objects (e.g. Pong) are never replaced, they are written in order before the latest objects
+ * @formatter:on
+ */
+public class Outbox implements AutoCloseable {
+	private static Config config = (Config) DI.get(Config.class);
+	private static Logger logger = (Logger) DI.get(Logger.class);
+
+	private final Listen listen;
+	private final Connection connection;
+	private final AtomicReference<Pending> latest = new AtomicReference<>();
+	private final Queue<Object> control = new ConcurrentLinkedQueue<>();
+	private final Semaphore available = new Semaphore(0);
+	private final AtomicLong dropped = new AtomicLong();
+	// 0 if no write is in progress
+	private volatile long writeStarted = 0;
+	private volatile boolean closed = false;
+	// last time something was written to the connection, only used by writer
+	private long connectionWritten = 0;
+
+	public Outbox(final Listen listen, final Connection connection) {
+		this.listen = listen;
+		this.connection = connection;
+		Threads.start(this::write);
+	}
+
+	/**
+	 * Objects waiting to be written
+	 */
+	private static class Pending {
+		// null if already taken by the writer
+		public final Object[] objects;
+		public final boolean unreliable;
+		public final long sequence;
+
+		public Pending(final Object[] objects, final boolean unreliable, final long sequence) {
+			this.objects = objects;
+			this.unreliable = unreliable;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * @formatter:off
+		 * Left in place of this by the writer so later offers still know the sequence
+		 * @return
+		 * @formatter:on
+		 */
+		public Pending taken() {
+			return objects == null ? this : new Pending(null, false, sequence);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Queues objects to be sent, replacing the ones not yet written
+	 * Closes connection if it is backlogged for too long
+	 * Never blocks
+	 * @param unreliable objects may be sent in a datagram
+	 * @param sequence refused if older than the one offered before
+	 * @param objects must not be modified after offered
+	 * @formatter:on
+	 */
+	public void offer(final boolean unreliable, final long sequence, final Object... objects) {
+		if (closed) {
+			return;
+		}
+
+		final long started = writeStarted;
+		if (started != 0 && System.currentTimeMillis() - started > config.sendBacklogTimeout) {
+			logger.printf("Connection backlogged for too long, disconnecting %s\n", connection.toString());
+			disconnect();
+			return;
+		}
+
+		final Pending pending = new Pending(objects, unreliable, sequence);
+		Pending previous;
+		do {
+			previous = latest.get();
+			if (previous != null && previous.sequence > sequence) {
+				dropped.incrementAndGet();
+				return;
+			}
+		} while (!latest.compareAndSet(previous, pending));
+
+		if (previous == null || previous.objects == null) {
+			available.release();
+		} else {
+			dropped.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Queues a control object to be sent over the connection, it is not replaced by later offers
+	 * Never blocks
+	 * @param object must not be modified after offered
+	 * @formatter:on
+	 */
+	public void offerControl(final Object object) {
+		if (closed) {
+			return;
+		}
+
+		control.offer(object);
+		available.release();
+	}
+
+	/**
+	 * @formatter:off
+	 * Writer loop, writes the queued control objects then the latest offered objects
+	 * Everything going over the connection is written at once
+	 * @formatter:on
+	 */
+	private void write() {
+		while (!closed) {
+			try {
+				available.acquire();
+			} catch (final InterruptedException e) {
+				break;
+			}
+
+			writeStarted = System.currentTimeMillis();
+			try {
+				final List<Object> objects = new ArrayList<>();
+				Object object;
+				while ((object = control.poll()) != null) {
+					objects.add(object);
+				}
+
+				final Pending pending = latest.getAndUpdate(current -> current == null ? null : current.taken());
+				if (pending != null && pending.objects != null) {
+					final boolean keepalive = writeStarted - connectionWritten > config.datagramConnectionKeepalive;
+					if (!pending.unreliable || keepalive || !sendDatagram(pending.objects)) {
+						Collections.addAll(objects, pending.objects);
+					}
+				}
+
+				if (!objects.isEmpty()) {
+					listen.send(connection.frameWriter, objects.toArray());
+					connectionWritten = writeStarted;
+				}
+			} catch (final IOException e) {
+				if (!closed) {
+					logger.printf("Couldn't send update to client: %s\n", connection.toString());
+					disconnect();
+				}
+				break;
+			} finally {
+				writeStarted = 0;
+			}
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends objects in a datagram if possible
+	 * @param objects
+	 * @return false if objects have to be sent over the connection
+	 * @formatter:on
+	 */
+	private boolean sendDatagram(final Object[] objects) {
+		final Datagram datagram = listen.getDatagram();
+		final SocketAddress datagramAddress = connection.datagramAddress;
+		if (datagram == null || datagramAddress == null || objects.length != 1) {
+			return false;
+		}
+
+		try {
+			return datagram.send(datagramAddress, objects[0]);
+		} catch (final IOException e) {
+			// datagrams are unreliable anyway, fall back
+			return false;
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Closes socket so the receiving side of the connection notices and handles the disconnect
+	 * @formatter:on
+	 */
+	private void disconnect() {
+		try {
+			connection.close();
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Number of offered objects replaced before they were written or refused as old
+	 * @return
+	 * @formatter:on
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @formatter:off
+	 * Waits until everything offered is written
+	 * @param deadline System.currentTimeMillis() after which it should not wait
+	 * @formatter:on
+	 */
+	public void awaitWritten(final long deadline) {
+		while (!closed && (isPending() || !control.isEmpty() || writeStarted != 0) && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (final InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private boolean isPending() {
+		final Pending pending = latest.get();
+		return pending != null && pending.objects != null;
+	}
+
+	/**
+	 * Stops writer thread, does not close connection
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		available.release();
+	}
+}
@@ -0,0 +1,19 @@
+package network;
+
+import java.io.Serializable;
+
+/**
+ * @formatter:off
+ * Clock synchronisation request, answered by a Pong
+ * @formatter:on
+ */
+public class Ping implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// System.currentTimeMillis() of the sender when sent
+	public final long clientTime;
+
+	public Ping(final long clientTime) {
+		this.clientTime = clientTime;
+	}
+}
@@ -0,0 +1,22 @@
+package network;
+
+import java.io.Serializable;
+
+/**
+ * @formatter:off
+ * Clock synchronisation reply to a Ping
+ * @formatter:on
+ */
+public class Pong implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// copied from the Ping
+	public final long clientTime;
+	// System.currentTimeMillis() of the replier when the Ping was received
+	public final long serverTime;
+
+	public Pong(final long clientTime, final long serverTime) {
+		this.clientTime = clientTime;
+		this.serverTime = serverTime;
+	}
+}
@@ -0,0 +1,23 @@
+package network;
+
+import java.io.Serializable;
+
+import helper.Auth;
+
+/**
+ * @formatter:off
+ * First handshake message of a client which lost its connection instead of its name
+ * Server gives back the player of auth if it still keeps it, otherwise it joins as name
+ * @formatter:on
+ */
+public class Resume implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public final Auth auth;
+	public final String name;
+
+	public Resume(final Auth auth, final String name) {
+		this.auth = auth;
+		this.name = name;
+	}
+}
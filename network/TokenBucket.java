@@ -0,0 +1,71 @@
+package network;
+
+/**
+ * @formatter:off
+ * Rate limiter: allows rate events per second on average and bursts of up to burst events
+ * Tokens are refilled lazily when one is taken
+ * Not thread safe
+ * @formatter:on
+ */
+public class TokenBucket {
+	// tokens per ms
+	private final double rate;
+	private final double burst;
+	private double tokens;
+	private long refilled;
+
+	/**
+	 * @formatter:off
+	 * Creates full bucket
+	 * @param rate tokens per second
+	 * @param burst capacity
+	 * @param now current time (ms)
+	 * @formatter:on
+	 */
+	public TokenBucket(final double rate, final double burst, final long now) {
+		this.rate = rate / 1000;
+		this.burst = burst;
+		tokens = burst;
+		refilled = now;
+	}
+
+	/**
+	 * @formatter:off
+	 * Takes a token if there is one
+	 * @param now current time (ms)
+	 * @return false if the rate is exceeded
+	 * @formatter:on
+	 */
+	public boolean tryTake(final long now) {
+		refill(now);
+
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * @formatter:off
+	 * Time until a token can be taken
+	 * @param now current time (ms)
+	 * @return ms, 0 if one can be taken now
+	 * @formatter:on
+	 */
+	public long getWait(final long now) {
+		refill(now);
+
+		if (tokens >= 1) {
+			return 0;
+		}
+		return (long) Math.ceil((1 - tokens) / rate);
+	}
+
+	private void refill(final long now) {
+		if (now > refilled) {
+			tokens = Math.min(burst, tokens + (now - refilled) * rate);
+			refilled = now;
+		}
+	}
+}
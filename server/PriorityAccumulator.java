@@ -0,0 +1,200 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import di.DI;
+import helper.Config;
+import world.element.WorldElement;
+import world.element.movable.Movable;
+
+/**
+ * @formatter:off
+ * Chooses which elements a user gets updates of in a tick so they fit into Config.snapshotBudget
+ * Every element in view accumulates priority each tick it is not sent, more for movables and near ones
+ * The elements with the highest accumulated priority are sent and theirs is reset
+ * As priority only grows, every element is sent eventually
+ * Elements the user has not got yet are sent first
+ * Elements unchanged since the user acknowledged them gain none and are not sent,
+ * Tick shares the copy of an unchanged element between snapshots, so it is the same object
+ * Snapshots can be lost (replaced in the Outbox, datagram loss), so the priority an element had when sent
+ * is kept until the user acknowledges a snapshot carrying it, a lost snapshot gives it back
+ * Not thread safe
+ * @formatter:on
+ */
+public class PriorityAccumulator {
+	private static Config config = (Config) DI.get(Config.class);
+
+	private static class Candidate {
+		public final WorldElement worldElement;
+		public final double priority;
+
+		public Candidate(final WorldElement worldElement, final double priority) {
+			this.worldElement = worldElement;
+			this.priority = priority;
+		}
+	}
+
+	/**
+	 * Last snapshot an element was sent in
+	 */
+	private static class Sent {
+		public final long sequence;
+		// accumulated before it was reset
+		public final double priority;
+		// as it was sent
+		public final WorldElement worldElement;
+
+		public Sent(final long sequence, final double priority, final WorldElement worldElement) {
+			this.sequence = sequence;
+			this.priority = priority;
+			this.worldElement = worldElement;
+		}
+	}
+
+	// accumulated priority by id of elements in view, missing if not sent since in view
+	private Map<Integer, Double> accumulated = new HashMap<>();
+	// by id of elements in view sent in snapshots not yet acknowledged
+	private Map<Integer, Sent> unacknowledged = new HashMap<>();
+	// by id of elements in view, as they were in the newest acknowledged snapshot carrying them
+	private Map<Integer, WorldElement> delivered = new HashMap<>();
+
+	/**
+	 * @formatter:off
+	 * Chooses elements to be sent this tick
+	 * @param worldElements elements in view
+	 * @param you player of the user, always sent; nullable
+	 * @param sequence of the snapshot the elements are sent in, increasing
+	 * @param sizes encoded size of an element (bits)
+	 * @return elements to be sent
+	 * @formatter:on
+	 */
+	public Set<WorldElement> select(final List<? extends WorldElement> worldElements, final WorldElement you,
+			final long sequence, final ToLongFunction<WorldElement> sizes) {
+		final Set<WorldElement> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+		long budget = (long) config.snapshotBudget * Byte.SIZE;
+		if (you != null) {
+			selected.add(you);
+			budget -= sizes.applyAsLong(you);
+		}
+
+		final List<Candidate> candidates = new ArrayList<>(worldElements.size());
+		final Map<Integer, Double> accumulatedNext = new HashMap<>(worldElements.size() * 2);
+		final Map<Integer, WorldElement> deliveredNext = new HashMap<>();
+		for (final WorldElement worldElement : worldElements) {
+			if (worldElement == you) {
+				continue;
+			}
+			// the user has it as it is
+			if (delivered.get(worldElement.id) == worldElement && !unacknowledged.containsKey(worldElement.id)) {
+				accumulatedNext.put(worldElement.id, 0.0);
+				deliveredNext.put(worldElement.id, worldElement);
+				continue;
+			}
+
+			final Double priority = accumulated.get(worldElement.id);
+			candidates.add(new Candidate(worldElement,
+					priority == null ? Double.POSITIVE_INFINITY : priority + getPriority(worldElement, you)));
+		}
+		// stable => ties keep drawing order
+		candidates.sort(Comparator.comparingDouble((final Candidate candidate) -> candidate.priority).reversed());
+
+		final Map<Integer, Sent> unacknowledgedNext = new HashMap<>();
+		for (final Candidate candidate : candidates) {
+			final int id = candidate.worldElement.id;
+			final Sent sent = unacknowledged.get(id);
+			final WorldElement deliveredElement = delivered.get(id);
+			if (deliveredElement != null) {
+				deliveredNext.put(id, deliveredElement);
+			}
+			final long size = sizes.applyAsLong(candidate.worldElement);
+			if (budget >= size) {
+				budget -= size;
+				selected.add(candidate.worldElement);
+				accumulatedNext.put(id, 0.0);
+				// if the previous one is lost too, this one has to give back more
+				unacknowledgedNext.put(id, new Sent(sequence,
+						sent == null ? candidate.priority : Math.max(sent.priority, candidate.priority),
+						candidate.worldElement));
+			} else {
+				accumulatedNext.put(id, candidate.priority);
+				if (sent != null) {
+					unacknowledgedNext.put(id, sent);
+				}
+			}
+		}
+		// elements left the view are forgotten, the user forgets them too
+		accumulated = accumulatedNext;
+		unacknowledged = unacknowledgedNext;
+		delivered = deliveredNext;
+
+		return selected;
+	}
+
+	/**
+	 * @formatter:off
+	 * Handles which snapshots the user received
+	 * Elements last sent in a snapshot older than ack which is not among the received ones get back
+	 * the priority they had when sent, elements last sent in received ones are delivered
+	 * @param ack sequence of the newest snapshot received
+	 * @param received bit i is set if snapshot ack - 1 - i was received, older ones count as lost
+	 * @formatter:on
+	 */
+	public void acknowledge(final long ack, final long received) {
+		final Iterator<Map.Entry<Integer, Sent>> iterator = unacknowledged.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<Integer, Sent> entry = iterator.next();
+			final long sequence = entry.getValue().sequence;
+			if (sequence > ack) {
+				continue;
+			}
+			iterator.remove();
+
+			final long age = ack - 1 - sequence;
+			if (sequence == ack || age < Long.SIZE && (received & 1L << age) != 0) {
+				delivered.put(entry.getKey(), entry.getValue().worldElement);
+				continue;
+			}
+			// priority accumulated since then is kept as well, the element is still in view
+			accumulated.merge(entry.getKey(), entry.getValue().priority, Double::sum);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Forgets what was sent, every element is sent again as soon as possible
+	 * @formatter:on
+	 */
+	public void clear() {
+		accumulated = new HashMap<>();
+		unacknowledged = new HashMap<>();
+		delivered = new HashMap<>();
+	}
+
+	/**
+	 * @formatter:off
+	 * Priority gained by an element in a tick
+	 * @param worldElement
+	 * @param you nullable
+	 * @return
+	 * @formatter:on
+	 */
+	private double getPriority(final WorldElement worldElement, final WorldElement you) {
+		final double weight = worldElement instanceof Movable ? config.priorityMovable : 1;
+		if (you == null) {
+			return weight;
+		}
+
+		final int distance = Math.abs(worldElement.position.y - you.position.y)
+				+ Math.abs(worldElement.position.x - you.position.x);
+		return weight * config.squaresize / (config.squaresize + distance);
+	}
+}
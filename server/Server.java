@@ -1,13 +1,25 @@
 package server;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
 
+import client.SnapshotCodec;
 import client.WorldClient;
 import di.DI;
+import engine.SpatialGrid;
 import engine.Tick;
 import engine.gameend.FirstExit;
 import helper.Auth;
@@ -15,12 +27,22 @@ import helper.Config;
 import helper.Key;
 import helper.Logger;
 import helper.Position;
+import helper.Threads;
+import network.Compression;
+import network.Encoded;
+import network.KeyState;
 import network.Listen;
+import network.Ping;
+import network.Pong;
+import network.Resume;
 import network.Network.Connection;
+import user.InputMailbox;
 import user.User;
 import user.UserManager;
+import world.element.WorldElement;
 import world.element.movable.Movable;
 import world.element.movable.Player;
+import world.element.unmovable.Unmovable;
 
 public class Server implements AutoCloseable {
 	private static Config config = (Config) DI.get(Config.class);
@@ -33,7 +55,13 @@ public class Server implements AutoCloseable {
 	// calculate next state of worldServer
 	private Tick tick;
 	private Timer timer;
+	// a tick runs with it locked, so none runs any more once closed is set
+	private final Object ticking = new Object();
+	// guarded by ticking
+	private boolean closed;
 	private Phaser phaser;
+	// culls, prioritizes and encodes WorldClients of users
+	private ExecutorService senders;
 
 	/**
 	 * @formatter:off
@@ -51,6 +79,18 @@ public class Server implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * @formatter:off
+	 * Listens on port for a single game, which is stopped by close
+	 * @param port
+	 * @throws InterruptedException
+	 * @formatter:on
+	 */
+	public Server(final int port) throws InterruptedException {
+		phaser = new Phaser(0);
+		listen(port);
+	}
+
 	/**
 	 * @formatter:off
 	 * Start listening on port
@@ -61,8 +101,22 @@ public class Server implements AutoCloseable {
 	 */
 	public void listen(final int port) throws InterruptedException {
 		model.worldServer.generate();
-		model.userManager = new UserManager<>();
+		model.userManager = new UserManager<>(userServer -> userServer.connection);
+		model.snapshotSequence = 0;
+		tick = new Tick(model.worldServer, new FirstExit());
+		model.dictionary = null;
+		if (config.compression) {
+			try {
+				model.dictionary = Compression.createDictionary(tick.getWorldClient());
+			} catch (final IOException e) {
+				throw new Error(e);
+			}
+		}
 		listen = new Listen();
+		senders = Threads.newPool(config.senderThreads);
+		synchronized (ticking) {
+			closed = false;
+		}
 
 		// start listening
 		listen.listen(port, (connection) -> {
@@ -77,34 +131,74 @@ public class Server implements AutoCloseable {
 			receive(connection, object);
 		}, (final Connection connection) -> {
 			synchronized (model) {
-				final UserServer userServer = model.userManager.getList().stream()
-						.filter(userServerCandidate -> userServerCandidate.connection.equals(connection)).findFirst()
-						.get();
+				final UserServer userServer = model.userManager.findByConnection(connection);
+				if (userServer == null) {
+					return;
+				}
+				if (config.resumeGrace > 0 && userServer.state == User.State.Playing) {
+					suspend(userServer);
+					return;
+				}
+				model.worldServer.movables.remove(model.userManager.getPlayer(userServer));
+				model.userManager.remove(userServer);
+			}
+		}, (final Connection connection) -> {
+			// not handed over yet, suspending it would keep a player nobody plays
+			synchronized (model) {
+				final UserServer userServer = model.userManager.findByConnection(connection);
+				if (userServer == null) {
+					return;
+				}
+				model.worldServer.movables.remove(model.userManager.getPlayer(userServer));
 				model.userManager.remove(userServer);
-				model.worldServer.movables.removeIf(movable -> movable.owner == userServer);
 			}
 		});
+		if (config.udp) {
+			try {
+				listen.listenDatagram(this::receiveDatagram);
+				if (model.dictionary != null) {
+					listen.getDatagram().compress(model.dictionary);
+				}
+			} catch (final SocketException e) {
+				logger.printf("Couldn't listen for datagrams on %d, using only connections\n", port);
+			}
+		}
 
-		// tick start: calculate world, update connected users
-		tick = new Tick(model.worldServer, new FirstExit());
+		// tick start: calculate world, update connected users every few ticks
+		final long ticksPerSnapshot = Math.max(1, Math.round((double) config.snapshotRate / config.tickRate));
 		timer = new Timer();
 		// java can not create TimerTask as lambda
 		// https://stackoverflow.com/questions/37970682/passing-lambda-to-a-timer-instead-of-timertask
 		final TimerTask timerTask = new TimerTask() {
 			@Override
 			public void run() {
-				boolean shouldContinue;
-				synchronized (model) {
-					shouldContinue = tick.nextState();
-					send();
-				}
-
-				if (!shouldContinue) {
-					// has to be before deregister
-					cancel();
-
-					// has to be outside lock for it to be closed
-					phaser.arriveAndDeregister();
+				synchronized (ticking) {
+					// cancelled while waiting for the lock
+					if (closed) {
+						return;
+					}
+
+					boolean shouldContinue;
+					Snapshot snapshot = null;
+					synchronized (model) {
+						removeSuspended();
+						shouldContinue = tick.nextState();
+						// game end must be sent
+						if (!shouldContinue || tick.tickCount % ticksPerSnapshot == 0) {
+							snapshot = capture();
+						}
+					}
+					if (snapshot != null) {
+						send(snapshot);
+					}
+
+					if (!shouldContinue) {
+						// has to be before deregister
+						cancel();
+
+						// has to be outside lock for it to be closed
+						phaser.arriveAndDeregister();
+					}
 				}
 			}
 		};
@@ -118,60 +212,244 @@ public class Server implements AutoCloseable {
 
 	@Override
 	public void close() throws Exception {
-		listen.close();
+		// waits for the tick running, senders must not be shut down before it handed its jobs over
+		synchronized (ticking) {
+			closed = true;
+		}
 		timer.cancel();
 		// phaser might not be deregistered as we cancel the timer
+
+		// game end has to be offered before outboxes are drained
+		senders.shutdown();
+		senders.awaitTermination(config.sendBacklogTimeout, TimeUnit.MILLISECONDS);
+		listen.close();
+
+		if (config.compression) {
+			logger.printf("Compression: %s\n", Compression.getStatistics());
+		}
+	}
+
+	/**
+	 * User a WorldClient is sent to as it was at capture
+	 */
+	private static class Recipient {
+		public final UserServer userServer;
+		public final User.State state;
+		// id of its player, -1 if none
+		public final int playerId;
+
+		public Recipient(final UserServer userServer, final User.State state, final int playerId) {
+			this.userServer = userServer;
+			this.state = state;
+			this.playerId = playerId;
+		}
+	}
+
+	/**
+	 * WorldClient and the users it is sent to at the moment it was captured
+	 */
+	private static class Snapshot {
+		public final WorldClient worldClient;
+		public final List<Recipient> recipients;
+
+		public Snapshot(final WorldClient worldClient, final List<Recipient> recipients) {
+			this.worldClient = worldClient;
+			this.recipients = recipients;
+		}
 	}
 
 	/**
 	 * @formatter:off
-	 * Sends WorldClient (generated from WorldServer) to all connected clients
+	 * Copies everything send needs from the model so it can run without the lock
 	 * Must be called with lock closed
+	 * @return
 	 * @formatter:on
 	 */
-	public void send() {
-		final WorldClient worldClient = tick.getWorldClient();
+	private Snapshot capture() {
+		// published by the tick, shared => copy for the fields set here
+		final WorldClient worldClient = new WorldClient(tick.getWorldClient());
+		worldClient.sequence = ++model.snapshotSequence;
+		worldClient.time = System.currentTimeMillis();
 
+		final List<Recipient> recipients = new ArrayList<>();
 		for (final UserServer userServer : model.userManager.getList()) {
-			// state
-			worldClient.state = userServer.state;
-
-			// alter user's player to be identifiable
-			Player playerYou = null;
-			for (final Movable movable : worldClient.movables) {
-				if (!(movable instanceof Player)) {
-					continue;
+			if (userServer.disconnected != 0) {
+				continue;
+			}
+			final Movable player = model.userManager.getPlayer(userServer);
+			recipients.add(new Recipient(userServer, userServer.state, player == null ? -1 : player.id));
+		}
+		return new Snapshot(worldClient, recipients);
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends captured WorldClient to all its users
+	 * Only hands the users over to senders, neither them nor slow clients block the tick
+	 * A job still queued when a newer WorldClient of its user is handed over is skipped
+	 * WorldClients are sent in datagrams to users which registered a datagram address
+	 * Each user only gets the elements around its player (see cull)
+	 * and of those only the most relevant ones which fit into its budget (see prioritize)
+	 * @param snapshot not modified afterwards, shared by senders
+	 * @formatter:on
+	 */
+	private void send(final Snapshot snapshot) {
+		final WorldClient worldClient = snapshot.worldClient;
+
+		// players of the copied world by id
+		final Map<Integer, Player> playerById = new HashMap<>();
+		for (final Movable movable : worldClient.movables) {
+			if (movable instanceof Player) {
+				playerById.put(movable.id, (Player) movable);
+			}
+		}
+
+		final SpatialGrid<Unmovable> unmovableGrid = new SpatialGrid<>(worldClient.height, worldClient.width);
+		unmovableGrid.addAll(worldClient.unmovables);
+		final SpatialGrid<Movable> movableGrid = new SpatialGrid<>(worldClient.height, worldClient.width);
+		movableGrid.addAll(worldClient.movables);
+
+		for (final Recipient recipient : snapshot.recipients) {
+			final UserServer userServer = recipient.userServer;
+			userServer.sequenceQueued = worldClient.sequence;
+			senders.execute(() -> {
+				// senders fell behind, the user gets the newer one anyway
+				if (userServer.sequenceQueued != worldClient.sequence) {
+					return;
 				}
+				send(worldClient, userServer, recipient.state, playerById.get(recipient.playerId), unmovableGrid,
+						movableGrid);
+			});
+		}
+	}
 
-				final Player player = (Player) movable;
+	/**
+	 * @formatter:off
+	 * Builds WorldClient of a user, encodes it and queues it for the user's writer
+	 * Runs on senders
+	 * @param worldClient shared, only read
+	 * @param userServer
+	 * @param state of userServer at capture
+	 * @param you player of userServer in worldClient, null if none
+	 * @param unmovableGrid unmovables of worldClient
+	 * @param movableGrid movables of worldClient
+	 * @formatter:on
+	 */
+	private void send(final WorldClient worldClient, final UserServer userServer, final User.State state,
+			final Player you, final SpatialGrid<Unmovable> unmovableGrid, final SpatialGrid<Movable> movableGrid) {
+		final WorldClient worldClientUser = new WorldClient(worldClient);
+		worldClientUser.state = state;
+
+		// user's player to be identifiable
+		worldClientUser.youId = you == null ? -1 : you.id;
+		if (you != null) {
+			cull(worldClientUser, you, unmovableGrid, movableGrid);
+		}
 
-				if (player.owner.name.equals(userServer.name)) {
-					playerYou = player;
-					player.you = true;
+		final Encoded encoded;
+		try {
+			if (config.snapshotBudget > 0) {
+				// two snapshots of the same user might be built at the same time
+				synchronized (userServer.priorityAccumulator) {
+					prioritize(worldClientUser, you, userServer.priorityAccumulator);
 				}
 			}
+			encoded = Encoded.encode(worldClientUser);
+		} catch (final IOException e) {
+			logger.printf("Couldn't encode update to client: %s\n", userServer.connection.toString());
+			return;
+		}
 
-			// send
-			try {
-				listen.send(userServer.connection.objectOutputStream, worldClient);
-			} catch (final IOException e) {
-				logger.printf("Couldn't send update to client: %s\n", userServer.connection.toString());
-				// TODO dc here
-			}
+		// game end must not be lost
+		listen.sendLatest(userServer.connection, state == User.State.Playing, worldClient.sequence, encoded);
+	}
+
+	/**
+	 * @formatter:off
+	 * Keeps only the elements of worldClient which are in the viewport of its player
+	 * extended by Config.interestMarginSquare so elements arriving into view and the collisions
+	 * needed for prediction are already known
+	 * @param worldClient shallow copy, its lists are replaced
+	 * @param you player of the recipient in worldClient
+	 * @param unmovableGrid unmovables of worldClient
+	 * @param movableGrid movables of worldClient
+	 * @formatter:on
+	 */
+	private void cull(final WorldClient worldClient, final Player you, final SpatialGrid<Unmovable> unmovableGrid,
+			final SpatialGrid<Movable> movableGrid) {
+		// same area as Draw centers on the player
+		final Position center = new Position(you.position.y + config.squaresize / 2,
+				you.position.x + config.squaresize / 2);
+		final int margin = config.interestMarginSquare * config.squaresize;
+		final Position from = new Position(center.y - config.windowHeight / 2 - margin,
+				center.x - config.windowWidth / 2 - margin);
+		final Position to = new Position(center.y + config.windowHeight / 2 + margin,
+				center.x + config.windowWidth / 2 + margin);
+
+		worldClient.unmovables = unmovableGrid.query(from, to);
+		worldClient.movables = movableGrid.query(from, to);
+		if (worldClient.exit != null && !worldClient.unmovables.contains(worldClient.exit)) {
+			worldClient.exit = null;
+		}
+	}
 
-			// remove player alter
-			if (playerYou != null) {
-				playerYou.you = false;
+	/**
+	 * @formatter:off
+	 * Keeps only the elements of worldClient chosen by priorityAccumulator
+	 * Ids of all elements are kept so the client knows which ones are still in view
+	 * @param worldClient shallow copy, its lists are replaced
+	 * @param you player of the recipient in worldClient, null if none
+	 * @param priorityAccumulator of the recipient
+	 * @throws IOException if an element can not be encoded
+	 * @formatter:on
+	 */
+	private void prioritize(final WorldClient worldClient, final Player you,
+			final PriorityAccumulator priorityAccumulator) throws IOException {
+		final List<WorldElement> worldElements = new ArrayList<>(worldClient.unmovables);
+		worldElements.addAll(worldClient.movables);
+		// budget is spent by the encoded size of elements
+		final Map<WorldElement, Long> sizes = new IdentityHashMap<>();
+		for (final WorldElement worldElement : worldElements) {
+			sizes.put(worldElement, SnapshotCodec.sizeOf(worldElement, worldClient.height, worldClient.width));
+		}
+		if (you != null) {
+			sizes.put(you, SnapshotCodec.sizeOf(you, worldClient.height, worldClient.width));
+		}
+		final Set<WorldElement> selected = priorityAccumulator.select(worldElements, you, worldClient.sequence,
+				sizes::get);
+
+		worldClient.unmovableIds = new int[worldClient.unmovables.size()];
+		final List<Unmovable> unmovables = new ArrayList<>();
+		for (int i = 0; i < worldClient.unmovables.size(); i++) {
+			final Unmovable unmovable = worldClient.unmovables.get(i);
+			worldClient.unmovableIds[i] = unmovable.id;
+			if (selected.contains(unmovable)) {
+				unmovables.add(unmovable);
 			}
 		}
+		worldClient.unmovables = unmovables;
+
+		worldClient.movableIds = new int[worldClient.movables.size()];
+		final List<Movable> movables = new ArrayList<>();
+		for (int i = 0; i < worldClient.movables.size(); i++) {
+			final Movable movable = worldClient.movables.get(i);
+			worldClient.movableIds[i] = movable.id;
+			if (selected.contains(movable)) {
+				movables.add(movable);
+			}
+		}
+		worldClient.movables = movables;
 	}
 
 	/**
 	 * @formatter:off
 	 * Server side handshake
-	 * Based on given name give back unique name
+	 * A client which lost its connection sends Resume and gets its player back if it is still kept
+	 * Otherwise based on given name give back unique name
+	 * Anything else than a name or a Resume with a name is rejected
 	 * Generate and send unique auth
 	 * Create and spawn player corresponding to client
+	 * Send compression dictionary (null if disabled) then compress the rest of the connection
 	 * @param connection
 	 * @return
 	 * @throws ClassNotFoundException
@@ -180,22 +458,63 @@ public class Server implements AutoCloseable {
 	 */
 	public boolean handshake(final Connection connection) throws ClassNotFoundException, IOException {
 		// get basic info
-		final String name = (String) listen.receive(connection.objectInputStream);
-		if (name.length() > config.nameMaxLength) {
+		final Object hello = listen.receive(connection.frameReader);
+		final Resume resume;
+		final String name;
+		if (hello instanceof Resume) {
+			resume = (Resume) hello;
+			name = resume.name;
+		} else if (hello instanceof String) {
+			resume = null;
+			name = (String) hello;
+		} else {
+			logger.printf("Unknown handshake from %s\n", connection.toString());
+			return false;
+		}
+		// name validate
+		// - length validation
+		if (name == null || name.length() > config.nameMaxLength) {
+			logger.printf("Long name from %s\n", connection.toString());
 			return false;
 		}
 
-		// add
+		UserServer userServer = null;
+		if (resume != null && resume.auth != null && resume.auth.length() == config.authLength) {
+			userServer = resume(connection, resume.auth);
+		}
+		if (userServer == null) {
+			userServer = join(connection, name);
+		}
+
+		// reply
+		final User user = new User();
+		user.auth = userServer.auth;
+		user.name = userServer.name;
+		listen.send(connection.frameWriter, user);
+
+		// compression
+		listen.send(connection.frameWriter, (Object) model.dictionary);
+		if (model.dictionary != null) {
+			connection.compress(model.dictionary);
+		}
+
+		return true;
+	}
+
+	/**
+	 * @formatter:off
+	 * Adds new user with a unique name and auth and spawns its player
+	 * @param connection
+	 * @param name requested name
+	 * @return
+	 * @formatter:on
+	 */
+	private UserServer join(final Connection connection, final String name) {
 		final UserServer userServer = new UserServer(connection);
 		userServer.state = User.State.Playing;
 		synchronized (model) {
 			// unique name
-			int nameSuffix = 1;
-			userServer.name = name;
-			while (model.userManager.findByName(userServer.name) != null) {
-				userServer.name = name + nameSuffix;
-				nameSuffix++;
-			}
+			userServer.name = model.userManager.uniqueName(name);
 
 			// auth generate
 			userServer.auth = new Auth(config.authLength);
@@ -219,71 +538,241 @@ public class Server implements AutoCloseable {
 			// - unique auth generation
 			// - unique spawn generation
 			model.userManager.add(userServer);
+			model.userManager.setPlayer(userServer, player);
 		}
+		return userServer;
+	}
 
-		// reply
-		final User user = new User();
-		user.auth = userServer.auth;
-		user.name = userServer.name;
-		listen.send(connection.objectOutputStream, user);
+	/**
+	 * @formatter:off
+	 * Moves the user of auth with its player to connection
+	 * Its previous connection is closed in case the server has not noticed yet that it was lost
+	 * @param connection
+	 * @param auth
+	 * @return null if no user is playing with auth
+	 * @formatter:on
+	 */
+	private UserServer resume(final Connection connection, final Auth auth) {
+		final UserServer userServer;
+		final Connection connectionOld;
+		synchronized (model) {
+			userServer = model.userManager.findByAuth(auth);
+			if (userServer == null || userServer.state != User.State.Playing) {
+				return null;
+			}
 
-		return true;
+			// connection is an index key
+			final Movable player = model.userManager.getPlayer(userServer);
+			model.userManager.remove(userServer);
+			connectionOld = userServer.connection;
+			userServer.connection = connection;
+			userServer.disconnected = 0;
+			model.userManager.add(userServer);
+			model.userManager.setPlayer(userServer, player);
+		}
+		// client forgot every element
+		synchronized (userServer.priorityAccumulator) {
+			userServer.priorityAccumulator.clear();
+		}
+		logger.printf("%s resumed on %s\n", userServer.name, connection.toString());
+
+		// its disconnect does not find the user any more
+		try {
+			connectionOld.close();
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+		return userServer;
+	}
+
+	/**
+	 * @formatter:off
+	 * Keeps user and its player for Config.resumeGrace after its connection was lost
+	 * Its player stops until the user resumes
+	 * Must be called with lock closed
+	 * @param userServer
+	 * @formatter:on
+	 */
+	private void suspend(final UserServer userServer) {
+		userServer.disconnected = System.currentTimeMillis();
+		// inputs still queued would move it
+		userServer.input = new InputMailbox(config.inputMailboxSize);
+		final Movable player = model.userManager.getPlayer(userServer);
+		if (player != null) {
+			Arrays.fill(player.keys, false);
+		}
+		logger.printf("%s lost its connection, keeping it for %d ms\n", userServer.name, config.resumeGrace);
+	}
+
+	/**
+	 * @formatter:off
+	 * Removes users which did not resume within Config.resumeGrace with their players
+	 * Must be called with lock closed
+	 * @formatter:on
+	 */
+	private void removeSuspended() {
+		final long now = System.currentTimeMillis();
+		for (final UserServer userServer : model.userManager.getList()) {
+			if (userServer.disconnected != 0 && now - userServer.disconnected > config.resumeGrace) {
+				model.worldServer.movables.remove(model.userManager.getPlayer(userServer));
+				model.userManager.remove(userServer);
+			}
+		}
 	}
 
 	/**
 	 * @formatter:off
 	 * Receive object from a connection
-	 * Validate auth, finc corresponding client, player
-	 * Apply pressed keys to the state of the WorldServer
+	 * Pings are answered right away with the server time
+	 * KeyStates belong to the user of the connection
 	 * @param connection
 	 * @param object
 	 * @formatter:on
 	 */
 	public void receive(final Connection connection, final Object object) {
-		final User userUnsafe = (User) object;
-
-		synchronized (model) {
-			// auth validate
-			// - length validation
-			if (userUnsafe.auth.length() != config.authLength) {
-				logger.printf("Too long auth from %s\n", connection.toString());
-				return;
-			}
-			final UserServer userServer = model.userManager.findByAuth(userUnsafe.auth);
+		if (object instanceof Ping) {
+			// writer owns the stream
+			listen.sendControl(connection, new Pong(((Ping) object).clientTime, System.currentTimeMillis()));
+			return;
+		}
+		if (object instanceof KeyState) {
+			final UserServer userServer = model.userManager.findByConnection(connection);
 			if (userServer == null) {
-				logger.printf("Auth unknown from %s\n", connection.toString());
+				logger.printf("Input from unknown connection %s\n", connection.toString());
 				return;
 			}
+			publish(userServer, (KeyState) object);
+			return;
+		}
+		if (!(object instanceof User)) {
+			logger.printf("Unknown object from %s\n", connection.toString());
+			return;
+		}
 
-			// get Player
-			final Optional<Movable> movableOptional = model.worldServer.movables.stream()
-					.filter((final Movable movable) -> movable.owner == userServer).findFirst();
-			// TODO dead state?
-			if (movableOptional.isEmpty()) {
-				return;
-			}
-			final Movable movable = movableOptional.get();
+		receiveInput(connection.toString(), object);
+	}
 
-			// name change
-			// - length validation
-			if (userUnsafe.name.length() > config.nameMaxLength) {
-				logger.printf("Long name from %s\n", connection.toString());
-				return;
-			}
-			if (!userServer.name.equals(userUnsafe.name)) {
-				logger.printf("Replacing name from %s to %s from %s\n", userServer.name, userUnsafe.name,
-						connection.toString());
-				userServer.name = userUnsafe.name;
-			}
+	/**
+	 * @formatter:off
+	 * Receive object from a datagram
+	 * Only KeyStates are accepted, anything taking the model lock (e.g. a rename) has to come over
+	 * the rate limited connection
+	 * A valid one registers the sender address so WorldClients are sent in datagrams to it
+	 * @param address
+	 * @param object
+	 * @formatter:on
+	 */
+	public void receiveDatagram(final SocketAddress address, final Object object) {
+		if (!(object instanceof KeyState)) {
+			logger.printf("Unknown datagram from %s\n", address.toString());
+			return;
+		}
+		final UserServer userServer = receiveKeyState(address.toString(), (KeyState) object);
+		if (userServer == null) {
+			return;
+		}
+		userServer.connection.datagramAddress = address;
+	}
 
-			// keys copy
-			// - length validation
-			if (userUnsafe.keys.length != Key.KeyType.KeyLength) {
-				logger.printf("Length of keys is wrong %s\n", connection.toString());
-				return;
+	/**
+	 * @formatter:off
+	 * Validate auth, find corresponding client
+	 * Publish pressed keys to the client's InputMailbox which is applied by the next tick
+	 * Fields are validated before anything shared is looked up
+	 * Does not take the model lock unless name changes
+	 * @param from sender for logging
+	 * @param object
+	 * @return sender or null if invalid
+	 * @formatter:on
+	 */
+	private UserServer receiveInput(final String from, final Object object) {
+		final User userUnsafe = (User) object;
+
+		// auth validate
+		// - length validation
+		if (userUnsafe.auth == null || userUnsafe.auth.length() != config.authLength) {
+			logger.printf("Too long auth from %s\n", from);
+			return null;
+		}
+		// name validate
+		// - length validation
+		if (userUnsafe.name == null || userUnsafe.name.length() > config.nameMaxLength) {
+			logger.printf("Long name from %s\n", from);
+			return null;
+		}
+		// keys validate
+		// - length validation
+		if (userUnsafe.keys == null || userUnsafe.keys.length != Key.KeyType.KeyLength) {
+			logger.printf("Length of keys is wrong %s\n", from);
+			return null;
+		}
+
+		final UserServer userServer = model.userManager.findByAuth(userUnsafe.auth);
+		if (userServer == null) {
+			logger.printf("Auth unknown from %s\n", from);
+			return null;
+		}
+
+		// name change
+		if (!userServer.name.equals(userUnsafe.name)) {
+			synchronized (model) {
+				final String nameOld = userServer.name;
+				if (model.userManager.rename(userServer, userUnsafe.name)) {
+					logger.printf("Replacing name from %s to %s from %s\n", nameOld, userUnsafe.name, from);
+				} else {
+					logger.printf("Name %s is already used, not replacing from %s\n", userUnsafe.name, from);
+				}
 			}
-			for (int i = 0; i < Key.KeyType.KeyLength; i++) {
-				movable.keys[i] = userUnsafe.keys[i];
+		}
+
+		// keys publish
+		userServer.input.publish(userUnsafe.keys, userUnsafe.sequence);
+
+		return userServer;
+	}
+
+	/**
+	 * @formatter:off
+	 * Validate auth of a KeyState sent in a datagram, find corresponding client and publish its keys
+	 * KeyStates over Config.receiveRate of the user are dropped, the next one carries the whole key state anyway
+	 * @param from sender for logging
+	 * @param keyState
+	 * @return sender or null if invalid
+	 * @formatter:on
+	 */
+	private UserServer receiveKeyState(final String from, final KeyState keyState) {
+		if (keyState.auth == null || keyState.auth.length() != config.authLength) {
+			logger.printf("Too long auth from %s\n", from);
+			return null;
+		}
+
+		final UserServer userServer = model.userManager.findByAuth(keyState.auth);
+		if (userServer == null) {
+			logger.printf("Auth unknown from %s\n", from);
+			return null;
+		}
+		if (!userServer.datagramTokenBucket.tryTake(System.currentTimeMillis())) {
+			return null;
+		}
+
+		publish(userServer, keyState);
+
+		return userServer;
+	}
+
+	/**
+	 * @formatter:off
+	 * Publish pressed keys of a KeyState and hand the snapshots it acknowledges to the PriorityAccumulator
+	 * @param userServer sender
+	 * @param keyState
+	 * @formatter:on
+	 */
+	private void publish(final UserServer userServer, final KeyState keyState) {
+		userServer.input.publish(keyState.keys, keyState.sequence);
+
+		if (keyState.ack >= 0) {
+			synchronized (userServer.priorityAccumulator) {
+				userServer.priorityAccumulator.acknowledge(keyState.ack, keyState.received);
 			}
 		}
 	}
@@ -5,4 +5,8 @@ import user.UserManager;
 public class ServerModel {
 	public final WorldServer worldServer = new WorldServer();
 	public UserManager<UserServer> userManager;
+	// sequence number of the last WorldClient sent
+	public long snapshotSequence = 0;
+	// preset dictionary of compressed connections, null if compression is disabled
+	public byte[] dictionary;
 }
@@ -1,12 +1,27 @@
 package server;
 
+import di.DI;
+import helper.Config;
 import network.Network.Connection;
+import network.TokenBucket;
+import user.InputMailbox;
 import user.User;
 
 public class UserServer extends User {
+	private static Config config = (Config) DI.get(Config.class);
+
 	public Connection connection;
+	// time its connection was lost at (ms), 0 while connected
+	public long disconnected = 0;
+	public final PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+	// sequence of the newest WorldClient handed to senders for it, set by the tick only
+	public volatile long sequenceQueued = 0;
+	// rate limit of its datagrams, only used by the datagram receiver
+	public final TokenBucket datagramTokenBucket = new TokenBucket(config.receiveRate, config.receiveBurst,
+			System.currentTimeMillis());
 
 	public UserServer(final Connection connection) {
 		this.connection = connection;
+		this.input = new InputMailbox(config.inputMailboxSize);
 	}
 }
@@ -0,0 +1,42 @@
+package test.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.Clock;
+import di.DI;
+import helper.Config;
+
+public class ClockTest {
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	@Test
+	public void offset() {
+		Clock clock = new Clock();
+		assertFalse(clock.isSynced());
+
+		// server is 1000 ahead, 10 each way
+		clock.sample(0, 1010, 20);
+		assertTrue(clock.isSynced());
+		assertEquals(1000, clock.getOffset());
+		assertEquals(1100, clock.toServer(100));
+		assertEquals(20, clock.getRtt());
+	}
+
+	@Test
+	public void lowestRttWins() {
+		Clock clock = new Clock();
+		clock.sample(0, 1010, 20);
+		// reply delayed on the way back
+		clock.sample(100, 1110, 220);
+		assertEquals(1000, clock.getOffset());
+		assertTrue(clock.getRtt() > 20);
+	}
+}
@@ -0,0 +1,66 @@
+package test.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.Prediction;
+import client.WorldClient;
+import di.DI;
+import helper.Config;
+import helper.Key;
+import helper.Position;
+import user.InputMailbox.Input;
+import world.element.movable.Player;
+
+public class PredictionTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	private WorldClient createWorldClient(int x, long inputSequence) {
+		WorldClient worldClient = new WorldClient();
+		Player player = new Player();
+		player.position = new Position(0, x);
+		player.velocity = config.velocityPlayer;
+		player.inputSequence = inputSequence;
+		worldClient.movables.add(player);
+		worldClient.youId = player.id;
+		return worldClient;
+	}
+
+	private Input right(long sequence) {
+		boolean[] keys = new boolean[Key.KeyType.KeyLength];
+		keys[Key.KeyType.KeyRight.getValue()] = true;
+		return new Input(keys, sequence);
+	}
+
+	@Test
+	public void replayUnconfirmed() {
+		Prediction prediction = new Prediction();
+		prediction.reconcile(createWorldClient(0, 0));
+
+		// predicted locally
+		WorldClient worldClient = createWorldClient(0, 0);
+		prediction.reconcile(worldClient);
+		for (int i = 1; i <= 3; i++) {
+			prediction.step(right(i));
+		}
+		assertEquals(3 * config.velocityPlayer, worldClient.findMe().position.x);
+
+		// server applied first input only
+		worldClient = createWorldClient(config.velocityPlayer, 1);
+		prediction.reconcile(worldClient);
+		assertEquals(3 * config.velocityPlayer, worldClient.findMe().position.x);
+
+		// server disagrees (e.g. blocked), its position wins
+		worldClient = createWorldClient(0, 3);
+		prediction.reconcile(worldClient);
+		assertEquals(0, worldClient.findMe().position.x);
+	}
+}
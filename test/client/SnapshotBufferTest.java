@@ -0,0 +1,51 @@
+package test.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.SnapshotBuffer;
+import client.WorldClient;
+import di.DI;
+import helper.Config;
+import helper.Position;
+import world.element.movable.Enemy;
+
+public class SnapshotBufferTest {
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	private WorldClient createWorldClient(long sequence, int x) {
+		WorldClient worldClient = new WorldClient();
+		worldClient.sequence = sequence;
+		Enemy enemy = new Enemy();
+		// same enemy in every WorldClient
+		enemy.id = 1;
+		enemy.velocity = 10;
+		enemy.position = new Position(0, x);
+		worldClient.movables.add(enemy);
+		return worldClient;
+	}
+
+	@Test
+	public void interpolate() {
+		SnapshotBuffer snapshotBuffer = new SnapshotBuffer();
+		assertTrue(snapshotBuffer.add(createWorldClient(1, 0), 1000));
+		assertTrue(snapshotBuffer.add(createWorldClient(2, 10), 1020));
+		assertFalse(snapshotBuffer.add(createWorldClient(2, 10), 1030));
+
+		WorldClient worldClient = snapshotBuffer.interpolate(1010);
+		assertEquals(5, worldClient.getPositionDrawn(worldClient.movables.get(0)).x);
+
+		worldClient = snapshotBuffer.interpolate(900);
+		assertEquals(0, worldClient.getPositionDrawn(worldClient.movables.get(0)).x);
+
+		worldClient = snapshotBuffer.interpolate(2000);
+		assertEquals(10, worldClient.getPositionDrawn(worldClient.movables.get(0)).x);
+	}
+}
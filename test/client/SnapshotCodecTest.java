@@ -0,0 +1,136 @@
+package test.client;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.SnapshotCodec;
+import client.WorldClient;
+import di.DI;
+import helper.Config;
+import helper.Key;
+import helper.Position;
+import user.User;
+import world.element.movable.Enemy;
+import world.element.movable.Player;
+import world.element.unmovable.Bomb;
+import world.element.unmovable.Exit;
+import world.element.unmovable.Wall;
+
+public class SnapshotCodecTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	@Test
+	public void roundTrip() throws IOException {
+		WorldClient worldClient = new WorldClient();
+		worldClient.height = 9;
+		worldClient.width = 13;
+		worldClient.state = User.State.Playing;
+		worldClient.sequence = 12345;
+		worldClient.tick = 12000;
+		worldClient.time = System.currentTimeMillis();
+
+		Wall wall = new Wall();
+		wall.position = new Position(0, 12 * config.squaresize);
+		worldClient.unmovables.add(wall);
+		Bomb bomb = new Bomb();
+		bomb.position = new Position(config.squaresize, config.squaresize);
+		bomb.movedOutOfBomb = false;
+		bomb.ownerId = 5;
+		worldClient.unmovables.add(bomb);
+		// not in the list
+		Exit exit = new Exit();
+		exit.position = new Position(2 * config.squaresize, 3 * config.squaresize);
+		worldClient.exit = exit;
+
+		Enemy enemy = new Enemy();
+		enemy.position = new Position(57, 61);
+		enemy.velocity = config.velocityEnemy;
+		enemy.keys[Key.KeyType.KeyLeft.getValue()] = true;
+		worldClient.movables.add(enemy);
+		Player player = new Player();
+		player.position = new Position(101, 203);
+		player.velocity = config.velocityPlayer;
+		player.inputSequence = 77;
+		player.owner = new User();
+		player.owner.name = "name";
+		worldClient.movables.add(player);
+		worldClient.youId = player.id;
+		worldClient.movableIds = new int[] { enemy.id, player.id, player.id + 100 };
+
+		byte[] bytes = SnapshotCodec.encode(worldClient);
+		WorldClient decoded = new WorldClient();
+		SnapshotCodec.decode(bytes, decoded);
+
+		assertEquals(worldClient.state, decoded.state);
+		assertEquals(worldClient.sequence, decoded.sequence);
+		assertEquals(worldClient.tick, decoded.tick);
+		assertEquals(worldClient.time, decoded.time);
+		assertEquals(null, decoded.unmovableIds);
+		assertArrayEquals(worldClient.movableIds, decoded.movableIds);
+
+		assertEquals(2, decoded.unmovables.size());
+		assertTrue(decoded.unmovables.get(0) instanceof Wall);
+		assertEquals(wall.id, decoded.unmovables.get(0).id);
+		assertEquals(12 * config.squaresize, decoded.unmovables.get(0).position.x);
+		assertEquals(false, decoded.unmovables.get(1).movedOutOfBomb);
+		assertEquals(5, decoded.unmovables.get(1).ownerId);
+		assertEquals(exit.id, decoded.exit.id);
+		assertEquals(3 * config.squaresize, decoded.exit.position.x);
+
+		assertEquals(2, decoded.movables.size());
+		assertEquals(61, decoded.movables.get(0).position.x);
+		assertTrue(Arrays.equals(enemy.keys, decoded.movables.get(0).keys));
+		Player you = decoded.findMe();
+		assertSame(decoded.movables.get(1), you);
+		assertEquals("name", you.owner.name);
+		assertEquals(77, you.inputSequence);
+		assertEquals(101, you.position.y);
+		assertEquals(config.velocityPlayer, you.velocity);
+	}
+
+	@Test
+	public void truncated() throws IOException {
+		WorldClient worldClient = new WorldClient();
+		worldClient.height = 9;
+		worldClient.width = 13;
+		worldClient.unmovables.add(new Wall());
+		byte[] bytes = SnapshotCodec.encode(worldClient);
+
+		assertThrows(IOException.class,
+				() -> SnapshotCodec.decode(Arrays.copyOf(bytes, bytes.length - 2), new WorldClient()));
+	}
+
+	@Test
+	public void sizeOf() throws IOException {
+		WorldClient worldClient = new WorldClient();
+		worldClient.height = 9;
+		worldClient.width = 13;
+		int empty = SnapshotCodec.encode(worldClient).length;
+		Wall wall = null;
+		for (int i = 1; i <= 8; i++) {
+			wall = new Wall();
+			wall.id = i;
+			wall.position = new Position(0, i * config.squaresize);
+			worldClient.unmovables.add(wall);
+		}
+		long size = SnapshotCodec.sizeOf(wall, worldClient.height, worldClient.width);
+
+		// 8 elements take whole bytes
+		assertEquals(empty + size, SnapshotCodec.encode(worldClient).length);
+	}
+}
@@ -0,0 +1,48 @@
+package test.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.SnapshotHandoff;
+import client.WorldClient;
+import di.DI;
+import helper.Config;
+
+public class SnapshotHandoffTest {
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	private static WorldClient worldClient(final long sequence) {
+		WorldClient worldClient = new WorldClient();
+		worldClient.sequence = sequence;
+		return worldClient;
+	}
+
+	@Test
+	public void latestWins() {
+		SnapshotHandoff snapshotHandoff = new SnapshotHandoff();
+		assertNull(snapshotHandoff.take());
+
+		WorldClient first = worldClient(1);
+		WorldClient second = worldClient(2);
+		snapshotHandoff.publish(first);
+		snapshotHandoff.publish(second);
+		assertSame(second, snapshotHandoff.take());
+		assertNull(snapshotHandoff.take());
+		assertSame(second, snapshotHandoff.latest());
+		assertEquals(1, snapshotHandoff.getDropped());
+
+		// older one arriving late does not replace the newer
+		snapshotHandoff.publish(worldClient(3));
+		snapshotHandoff.publish(first);
+		assertEquals(3, snapshotHandoff.take().sequence);
+		assertEquals(3, snapshotHandoff.latest().sequence);
+		assertEquals(2, snapshotHandoff.getDropped());
+	}
+}
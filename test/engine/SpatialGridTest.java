@@ -0,0 +1,49 @@
+package test.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import engine.SpatialGrid;
+import helper.Config;
+import helper.Position;
+import world.element.unmovable.Box;
+import world.element.unmovable.Unmovable;
+
+public class SpatialGridTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void before() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	private Box box(int y, int x) {
+		Box box = new Box();
+		box.position = new Position(y, x);
+		return box;
+	}
+
+	@Test
+	public void query() {
+		SpatialGrid<Unmovable> spatialGrid = new SpatialGrid<>(10, 10);
+		Box inside = box(3 * config.squaresize, 3 * config.squaresize);
+		// only reaches into the area
+		Box overlapping = box(config.squaresize + 1, config.squaresize + 1);
+		Box outside = box(8 * config.squaresize, 8 * config.squaresize);
+		Box touching = box(5 * config.squaresize, 3 * config.squaresize);
+		spatialGrid.add(inside);
+		spatialGrid.add(outside);
+		spatialGrid.add(touching);
+		spatialGrid.add(overlapping);
+
+		List<Unmovable> result = spatialGrid.query(new Position(2 * config.squaresize, 2 * config.squaresize),
+				new Position(5 * config.squaresize, 5 * config.squaresize));
+		assertEquals(List.of(inside, overlapping), result);
+	}
+}
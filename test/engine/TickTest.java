@@ -0,0 +1,97 @@
+package test.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import client.WorldClient;
+import di.DI;
+import engine.Tick;
+import engine.gameend.FirstExit;
+import helper.Auth;
+import helper.Config;
+import helper.Position;
+import server.WorldServer;
+import user.User;
+import world.element.movable.Player;
+import world.element.unmovable.Box;
+import world.element.unmovable.Exit;
+import world.element.unmovable.Wall;
+
+public class TickTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	@Test
+	public void publish() {
+		WorldServer worldServer = new WorldServer();
+		worldServer.height = 5;
+		worldServer.width = 5;
+		Box box = new Box();
+		box.position = new Position(0, 0);
+		worldServer.unmovables.add(box);
+		Exit exit = new Exit();
+		exit.position = new Position(4 * config.squaresize, 4 * config.squaresize);
+		worldServer.unmovables.add(exit);
+		worldServer.exit = exit;
+		Player player = new Player();
+		player.position = new Position(2 * config.squaresize, 2 * config.squaresize);
+		player.owner = new User();
+		player.owner.name = "name";
+		player.owner.auth = new Auth(config.authLength);
+		worldServer.movables.add(player);
+
+		Tick tick = new Tick(worldServer, new FirstExit());
+		WorldClient first = tick.getWorldClient();
+		assertEquals(2, first.unmovables.size());
+		assertSame(first.exit, first.unmovables.get(1));
+		Player playerFirst = (Player) first.movables.get(0);
+		assertNotSame(player, playerFirst);
+		assertEquals("name", playerFirst.owner.name);
+		assertNull(playerFirst.owner.auth);
+
+		player.position = new Position(3 * config.squaresize, 2 * config.squaresize);
+		tick.nextState();
+		WorldClient second = tick.getWorldClient();
+
+		// published snapshots are not changed by later steps
+		assertEquals(2 * config.squaresize, playerFirst.position.y);
+		assertEquals(3 * config.squaresize, second.movables.get(0).position.y);
+		assertEquals(1, second.tick);
+
+		// unchanged elements are shared
+		assertSame(first.unmovables, second.unmovables);
+		assertNotSame(first.movables, second.movables);
+	}
+
+	@Test
+	public void wallIsShared() {
+		WorldServer worldServer = new WorldServer();
+		worldServer.height = 5;
+		worldServer.width = 5;
+		Wall wall = new Wall();
+		wall.position = new Position(0, 0);
+		worldServer.unmovables.add(wall);
+		Exit exit = new Exit();
+		exit.position = new Position(4 * config.squaresize, 4 * config.squaresize);
+		worldServer.unmovables.add(exit);
+		worldServer.exit = exit;
+
+		Tick tick = new Tick(worldServer, new FirstExit());
+		WorldClient first = tick.getWorldClient();
+		tick.nextState();
+		tick.nextState();
+
+		// has a single frame, its animation does not change it
+		assertSame(first.unmovables.get(0), tick.getWorldClient().unmovables.get(0));
+	}
+}
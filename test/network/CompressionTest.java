@@ -0,0 +1,55 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Config;
+import network.Compression;
+import server.WorldServer;
+
+public class CompressionTest {
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		WorldServer worldServer = new WorldServer();
+		worldServer.generate();
+		byte[] dictionary = Compression.createDictionary(worldServer);
+		assertTrue(dictionary.length <= Compression.dictionarySizeMax);
+
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(
+				Compression.deflate(byteArrayOutputStream, dictionary));
+		for (int i = 0; i < 2; i++) {
+			objectOutputStream.reset();
+			objectOutputStream.writeObject(worldServer);
+		}
+		objectOutputStream.flush();
+
+		ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStreamUncompressed = new ObjectOutputStream(uncompressed);
+		objectOutputStreamUncompressed.writeObject(worldServer);
+		objectOutputStreamUncompressed.flush();
+		// both copies together are smaller than one uncompressed
+		assertTrue(byteArrayOutputStream.size() < uncompressed.size());
+
+		ObjectInputStream objectInputStream = new ObjectInputStream(Compression
+				.inflate(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()), dictionary));
+		for (int i = 0; i < 2; i++) {
+			WorldServer received = (WorldServer) objectInputStream.readObject();
+			assertEquals(worldServer.unmovables.size(), received.unmovables.size());
+		}
+	}
+}
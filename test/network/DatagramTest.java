@@ -0,0 +1,264 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Auth;
+import helper.Config;
+import network.Connect;
+import network.Datagram;
+import network.KeyState;
+import network.Listen;
+import network.Network.Connection;
+
+public class DatagramTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	/**
+	 * @formatter:off
+	 * A compressed datagram which inflates to more than Config.frameSizeMax is dropped
+	 * and the receiver keeps receiving
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void decompressionBomb() throws Exception {
+		final byte[] dictionary = "dictionary".getBytes();
+		final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		Datagram server = new Datagram();
+		server.bind(Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			received.add(object);
+		});
+		server.compress(dictionary);
+
+		// a valid object, zeros compress about a thousand times
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream objectOutputStream = new ObjectOutputStream(serialized);
+		objectOutputStream.writeObject(new byte[4 * config.frameSizeMax]);
+		objectOutputStream.close();
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+		deflater.setDictionary(dictionary);
+		deflater.setInput(serialized.toByteArray());
+		deflater.finish();
+		ByteArrayOutputStream bomb = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8 * 1024];
+		while (!deflater.finished()) {
+			bomb.write(buffer, 0, deflater.deflate(buffer));
+		}
+		assertTrue(bomb.size() <= Datagram.sizeMax);
+
+		DatagramSocket socket = new DatagramSocket();
+		socket.send(new DatagramPacket(bomb.toByteArray(), bomb.size(),
+				new InetSocketAddress(Config.defaultIP, Config.defaultPort)));
+
+		Datagram client = new Datagram();
+		client.connect(Config.defaultIP, Config.defaultPort, (final SocketAddress address, final Object object) -> {
+		});
+		client.compress(dictionary);
+		client.send(null, new KeyState(new boolean[5], 1, null));
+		// bomb was not delivered
+		assertEquals(1, ((KeyState) received.poll(5, TimeUnit.SECONDS)).sequence);
+
+		socket.close();
+		client.close();
+		server.close();
+	}
+
+	/**
+	 * @formatter:off
+	 * Client sends to the bound side which answers to the address the datagram came from
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void roundTrip() throws Exception {
+		roundTrip(null);
+		roundTrip("dictionary".getBytes());
+	}
+
+	private void roundTrip(final byte[] dictionary) throws Exception {
+		final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		Datagram server = new Datagram();
+		server.bind(Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			try {
+				server.send(address, object instanceof KeyState ? "reply" : "unexpected");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			received.add(object);
+		});
+
+		final BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+		Datagram client = new Datagram();
+		client.accept(String.class);
+		client.connect(Config.defaultIP, Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			replies.add(object);
+		});
+		if (dictionary != null) {
+			server.compress(dictionary);
+			client.compress(dictionary);
+		}
+
+		boolean[] keys = new boolean[] { true, false, true, false, false };
+		Auth auth = new Auth(config.authLength);
+		assertTrue(client.send(null, new KeyState(keys, 7, auth)));
+
+		KeyState keyState = (KeyState) received.poll(5, TimeUnit.SECONDS);
+		assertArrayEquals(keys, keyState.keys);
+		assertEquals(7, keyState.sequence);
+		assertEquals(auth, keyState.auth);
+		assertEquals("reply", replies.poll(5, TimeUnit.SECONDS));
+
+		client.close();
+		server.close();
+	}
+
+	/**
+	 * @formatter:off
+	 * The bound side deserializes nothing but raw KeyStates,
+	 * the connected one only objects of the accepted classes
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void onlyAccepted() throws Exception {
+		final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		Datagram server = new Datagram();
+		server.bind(Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			try {
+				server.send(address, 1);
+				server.send(address, "reply");
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			received.add(object);
+		});
+		final BlockingQueue<Object> replies = new LinkedBlockingQueue<>();
+		Datagram client = new Datagram();
+		client.accept(String.class);
+		client.connect(Config.defaultIP, Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			replies.add(object);
+		});
+
+		assertTrue(client.send(null, "serialized"));
+		assertTrue(client.send(null, new KeyState(new boolean[5], 1, null)));
+		assertEquals(1, ((KeyState) received.poll(5, TimeUnit.SECONDS)).sequence);
+		assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+		// the Integer was rejected
+		assertEquals("reply", replies.poll(5, TimeUnit.SECONDS));
+		assertNull(replies.poll(100, TimeUnit.MILLISECONDS));
+
+		client.close();
+		server.close();
+	}
+
+	/**
+	 * @formatter:off
+	 * Objects not fitting into a datagram are not sent
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void oversized() throws Exception {
+		final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		Datagram server = new Datagram();
+		server.bind(Config.defaultPort, (final SocketAddress address, final Object object) -> {
+			received.add(object);
+		});
+		Datagram client = new Datagram();
+		client.connect(Config.defaultIP, Config.defaultPort, (final SocketAddress address, final Object object) -> {
+		});
+
+		assertFalse(client.send(null, new byte[Datagram.sizeMax]));
+		assertTrue(client.send(null, new KeyState(new boolean[5], 1, null)));
+		assertEquals(1, ((KeyState) received.poll(5, TimeUnit.SECONDS)).sequence);
+		assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+
+		client.close();
+		server.close();
+	}
+
+	/**
+	 * @formatter:off
+	 * Outbox sends unreliable objects over the connection until the client registered its datagram address,
+	 * afterwards in datagrams unless they are too big or have to be reliable
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void registration() throws Exception {
+		final BlockingQueue<Connection> connections = new LinkedBlockingQueue<>();
+		final BlockingQueue<SocketAddress> registered = new LinkedBlockingQueue<>();
+		Listen listen = new Listen();
+		listen.listen(Config.defaultPort, (connection) -> {
+			connections.add(connection);
+			return true;
+		}, (final Connection connection, final Object object) -> {
+		}, (final Connection connection) -> {
+		});
+		listen.listenDatagram((final SocketAddress address, final Object object) -> {
+			registered.add(address);
+		});
+
+		final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+		final BlockingQueue<Object> datagrams = new LinkedBlockingQueue<>();
+		Connect connect = new Connect();
+		try {
+			assertTrue(connect.connect((final Connection connection) -> true, (final Object object) -> {
+				received.add(object);
+			}, Config.defaultIP, Config.defaultPort));
+			connect.connectDatagram((final Object object) -> {
+				datagrams.add(object);
+			}, String.class);
+			Connection connection = connections.poll(5, TimeUnit.SECONDS);
+			// outbox is set after the handshake returned
+			while (connection.outbox == null) {
+				Thread.sleep(1);
+			}
+
+			// no address yet
+			listen.sendLatest(connection, true, 1, "connection");
+			assertEquals("connection", received.poll(5, TimeUnit.SECONDS));
+
+			connect.sendDatagram(new KeyState(new boolean[5], 1, null));
+			connection.datagramAddress = registered.poll(5, TimeUnit.SECONDS);
+			listen.sendLatest(connection, true, 2, "datagram");
+			assertEquals("datagram", datagrams.poll(5, TimeUnit.SECONDS));
+
+			// falls back
+			listen.sendLatest(connection, true, 3, new byte[Datagram.sizeMax]);
+			assertEquals(Datagram.sizeMax, ((byte[]) received.poll(5, TimeUnit.SECONDS)).length);
+			listen.sendLatest(connection, false, 4, "reliable");
+			assertEquals("reliable", received.poll(5, TimeUnit.SECONDS));
+			assertNull(datagrams.poll(100, TimeUnit.MILLISECONDS));
+		} finally {
+			connect.close();
+			listen.close();
+		}
+	}
+}
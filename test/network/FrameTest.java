@@ -0,0 +1,61 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Config;
+import network.Encoded;
+import network.FrameReader;
+import network.FrameWriter;
+
+public class FrameTest {
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		FrameWriter frameWriter = new FrameWriter(byteArrayOutputStream);
+		frameWriter.write("first", 2);
+		frameWriter.write("third");
+
+		FrameReader frameReader = new FrameReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()),
+				1024);
+		assertEquals("first", frameReader.read());
+		assertEquals(2, frameReader.read());
+		assertEquals("third", frameReader.read());
+	}
+
+	@Test
+	public void encoded() throws Exception {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		FrameWriter frameWriter = new FrameWriter(byteArrayOutputStream);
+		frameWriter.write("first", Encoded.encode("second"), 3);
+
+		FrameReader frameReader = new FrameReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()),
+				1024);
+		assertEquals("first", frameReader.read());
+		assertEquals("second", frameReader.read());
+		assertEquals(3, frameReader.read());
+	}
+
+	@Test
+	public void tooLong() throws Exception {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new FrameWriter(byteArrayOutputStream).write(new byte[2048]);
+
+		FrameReader frameReader = new FrameReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()),
+				1024);
+		assertThrows(IOException.class, () -> frameReader.read());
+	}
+}
@@ -1,8 +1,18 @@
 package test.network;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -10,8 +20,10 @@ import org.junit.jupiter.api.Test;
 import di.DI;
 import helper.Config;
 import network.Connect;
+import network.KeyState;
 import network.Listen;
 import network.Network.Connection;
+import network.Ping;
 
 public class GeneralTest {
 
@@ -44,12 +56,12 @@ public class GeneralTest {
 		listen.listen(Config.defaultPort, (connection) -> {
 			try {
 				// Receive hello, send hello
-				String hello = (String) listen.receive(connection.objectInputStream);
+				String hello = (String) listen.receive(connection.frameReader);
 				assertEquals(hello, helloMsg);
-				listen.send(connection.objectOutputStream, helloMsg);
+				listen.send(connection.frameWriter, helloMsg);
 
 				// send ping
-				listen.send(connection.objectOutputStream, pingMsg);
+				listen.send(connection.frameWriter, pingMsg);
 			} catch (ClassNotFoundException | IOException e) {
 				e.printStackTrace();
 			}
@@ -96,4 +108,207 @@ public class GeneralTest {
 		connect.join();
 		listen.close();
 	}
+
+	/**
+	 * @formatter:off
+	 * A client which never sends its handshake does not block others
+	 * and is disconnected after Config.handshakeStageTimeout
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void silentClient() throws Exception {
+		final Config config = (Config) DI.get(Config.class);
+		final long handshakeStageTimeout = config.handshakeStageTimeout;
+		config.handshakeStageTimeout = 300;
+		Listen listen = new Listen();
+		Connect connect = new Connect();
+		Socket silent = null;
+		try {
+			listen.listen(Config.defaultPort, (connection) -> {
+				try {
+					listen.receive(connection.frameReader);
+				} catch (ClassNotFoundException | IOException e) {
+					return false;
+				}
+				return true;
+			}, (final Connection connection, final Object object) -> {
+			}, (final Connection connection) -> {
+			});
+
+			silent = new Socket(Config.defaultIP, Config.defaultPort);
+			long started = System.currentTimeMillis();
+			assertTrue(connect.connect((final Connection connection) -> {
+				try {
+					connect.send("name");
+				} catch (IOException e) {
+					return false;
+				}
+				return true;
+			}, (final Object object) -> {
+			}, Config.defaultIP, Config.defaultPort));
+			assertTrue(System.currentTimeMillis() - started < config.handshakeStageTimeout);
+
+			// closed by server
+			assertEquals(-1, silent.getInputStream().read());
+		} finally {
+			if (silent != null) {
+				silent.close();
+			}
+			connect.close();
+			listen.close();
+			config.handshakeStageTimeout = handshakeStageTimeout;
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * A connection whose handshake failed is handed to the handshake failure handler, never to disconnect
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void failedHandshake() throws Exception {
+		final BlockingQueue<Connection> disconnected = new LinkedBlockingQueue<>();
+		final BlockingQueue<Connection> failed = new LinkedBlockingQueue<>();
+		Listen listen = new Listen();
+		Connect connect = new Connect();
+		try {
+			listen.listen(Config.defaultPort, (connection) -> {
+				try {
+					listen.receive(connection.frameReader);
+				} catch (ClassNotFoundException | IOException e) {
+				}
+				return false;
+			}, (final Connection connection, final Object object) -> {
+			}, (final Connection connection) -> {
+				disconnected.add(connection);
+			}, (final Connection connection) -> {
+				failed.add(connection);
+			});
+
+			connect.connect((final Connection connection) -> {
+				try {
+					connect.send("name");
+				} catch (IOException e) {
+					return false;
+				}
+				return true;
+			}, (final Object object) -> {
+			}, Config.defaultIP, Config.defaultPort);
+
+			assertNotNull(failed.poll(5, TimeUnit.SECONDS));
+			assertNull(disconnected.poll(100, TimeUnit.MILLISECONDS));
+		} finally {
+			connect.close();
+			listen.close();
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * A client which sends nothing after its handshake is disconnected after Config.idleTimeout
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void idleClient() throws Exception {
+		final Config config = (Config) DI.get(Config.class);
+		final long idleTimeout = config.idleTimeout;
+		config.idleTimeout = 300;
+		Listen listen = new Listen();
+		Connect connect = new Connect();
+		try {
+			final CountDownLatch disconnected = new CountDownLatch(1);
+			listen.listen(Config.defaultPort, (connection) -> true,
+					(final Connection connection, final Object object) -> {
+					}, (final Connection connection) -> {
+						disconnected.countDown();
+					});
+
+			assertTrue(connect.connect((final Connection connection) -> true, (final Object object) -> {
+			}, Config.defaultIP, Config.defaultPort));
+			assertTrue(disconnected.await(10 * config.idleTimeout, TimeUnit.MILLISECONDS));
+		} finally {
+			connect.close();
+			listen.close();
+			config.idleTimeout = idleTimeout;
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * KeyStates over Config.receiveRate are coalesced: the newest one is delivered when the rate allows
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void coalesceOverRate() throws Exception {
+		final Object[] received = overRate(new KeyState(new boolean[5], 1, null), new KeyState(new boolean[5], 2, null),
+				new KeyState(new boolean[5], 3, null), new KeyState(new boolean[5], 4, null));
+		assertEquals(2, received.length);
+		assertEquals(1, ((KeyState) received[0]).sequence);
+		// after a token is refilled (100 ms)
+		assertEquals(4, ((KeyState) received[1]).sequence);
+	}
+
+	/**
+	 * @formatter:off
+	 * Other frames over Config.receiveRate are all delivered in order, only later
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	@Test
+	public void controlOverRate() throws Exception {
+		final long start = System.currentTimeMillis();
+		final Object[] received = overRate("first", new Ping(1), "third");
+		assertEquals(3, received.length);
+		assertEquals("first", received[0]);
+		assertEquals(1, ((Ping) received[1]).clientTime);
+		assertEquals("third", received[2]);
+		// a token every 100 ms
+		assertTrue(System.currentTimeMillis() - start >= 200);
+	}
+
+	/**
+	 * @formatter:off
+	 * Sends objects at once with a receive rate of 10 per second and no burst
+	 * @param objects
+	 * @return received until nothing arrives for 300 ms
+	 * @throws Exception
+	 * @formatter:on
+	 */
+	private Object[] overRate(final Object... objects) throws Exception {
+		final Config config = (Config) DI.get(Config.class);
+		final int receiveRate = config.receiveRate;
+		final int receiveBurst = config.receiveBurst;
+		config.receiveRate = 10;
+		config.receiveBurst = 1;
+		Listen listen = new Listen();
+		Connect connect = new Connect();
+		try {
+			final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+			listen.listen(Config.defaultPort, (connection) -> true,
+					(final Connection connection, final Object object) -> {
+						received.add(object);
+					}, (final Connection connection) -> {
+					});
+
+			assertTrue(connect.connect((final Connection connection) -> true, (final Object object) -> {
+			}, Config.defaultIP, Config.defaultPort));
+			connect.send(objects);
+
+			final List<Object> polled = new ArrayList<>();
+			Object object;
+			while ((object = received.poll(300, TimeUnit.MILLISECONDS)) != null) {
+				polled.add(object);
+			}
+			return polled.toArray();
+		} finally {
+			connect.close();
+			listen.close();
+			config.receiveRate = receiveRate;
+			config.receiveBurst = receiveBurst;
+		}
+	}
 }
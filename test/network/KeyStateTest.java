@@ -0,0 +1,88 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Auth;
+import helper.Config;
+import network.Encoded;
+import network.FrameReader;
+import network.FrameWriter;
+import network.KeyState;
+
+public class KeyStateTest {
+	private static Config config;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	private static Object roundTrip(final Object object) throws Exception {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new FrameWriter(byteArrayOutputStream).write(object);
+		return new FrameReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()), config.frameSizeMax)
+				.read();
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		boolean[] keys = new boolean[] { true, false, false, true, true };
+		KeyState keyState = (KeyState) roundTrip(new KeyState(keys, 300, null));
+		assertArrayEquals(keys, keyState.keys);
+		assertEquals(300, keyState.sequence);
+		assertNull(keyState.auth);
+
+		Auth auth = new Auth(config.authLength);
+		keyState = (KeyState) roundTrip(new KeyState(keys, Long.MAX_VALUE, auth));
+		assertEquals(Long.MAX_VALUE, keyState.sequence);
+		assertEquals(auth, keyState.auth);
+		assertEquals(-1, keyState.ack);
+
+		KeyState acknowledging = new KeyState(keys, 1, null);
+		acknowledging.ack = 5;
+		acknowledging.received = 0b1011;
+		keyState = (KeyState) roundTrip(acknowledging);
+		assertEquals(5, keyState.ack);
+		assertEquals(0b1011, keyState.received);
+	}
+
+	@Test
+	public void size() throws Exception {
+		boolean[] keys = new boolean[] { true, true, true, true, true };
+		// tag, mask and a sequence of up to 14 bits
+		assertTrue(Encoded.encode(new KeyState(keys, 300, null)).size() <= 4);
+		// a full varint
+		assertTrue(Encoded.encode(new KeyState(keys, Long.MAX_VALUE, null)).size() <= 12);
+		// ack and the inverted received bits, nothing lost
+		KeyState acknowledging = new KeyState(keys, 300, null);
+		acknowledging.ack = 300;
+		acknowledging.received = -1;
+		assertTrue(Encoded.encode(acknowledging).size() <= 4 + 3);
+		// auth adds its characters and a length
+		assertTrue(Encoded.encode(new KeyState(keys, 300, new Auth(config.authLength))).size() <= 4 + 1
+				+ config.authLength);
+	}
+
+	@Test
+	public void mixedWithSerialized() throws Exception {
+		boolean[] keys = new boolean[] { false, true, false, false, false };
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		new FrameWriter(byteArrayOutputStream).write(new KeyState(keys, 1, null), "between", new KeyState(keys, 2, null));
+		FrameReader frameReader = new FrameReader(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()),
+				config.frameSizeMax);
+		assertEquals(1, ((KeyState) frameReader.read()).sequence);
+		assertEquals("between", frameReader.read());
+		assertEquals(2, ((KeyState) frameReader.read()).sequence);
+	}
+}
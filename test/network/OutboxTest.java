@@ -0,0 +1,123 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Config;
+import network.Encoded;
+import network.FrameReader;
+import network.Listen;
+import network.Network.Connection;
+import network.Outbox;
+
+public class OutboxTest {
+	// more than the socket buffers of both sides take, so the writer is stuck until the client reads
+	private static final int stuckSize = 32 * 1024 * 1024;
+
+	private ServerSocket serverSocket;
+	private Socket client;
+	private Connection connection;
+	private Outbox outbox;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+	}
+
+	@BeforeEach
+	public void beforeEach() throws Exception {
+		serverSocket = new ServerSocket(0);
+		client = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		connection = new Connection(serverSocket.accept());
+		outbox = new Outbox(new Listen(), connection);
+		connection.outbox = outbox;
+	}
+
+	@AfterEach
+	public void afterEach() throws Exception {
+		connection.close();
+		client.close();
+		serverSocket.close();
+	}
+
+	/**
+	 * @formatter:off
+	 * Offers an object the writer gets stuck on, returns once it is being written
+	 * @formatter:on
+	 * @throws Exception
+	 */
+	private void stuck(final long sequence) throws Exception {
+		outbox.offer(false, sequence, Encoded.encode(new byte[stuckSize]));
+		// taken by the writer
+		outbox.awaitWritten(System.currentTimeMillis() + 50);
+	}
+
+	private Object[] read(final int count) throws Exception {
+		FrameReader frameReader = new FrameReader(client.getInputStream(), Integer.MAX_VALUE);
+		Object[] objects = new Object[count];
+		for (int i = 0; i < count; i++) {
+			objects[i] = frameReader.read();
+		}
+		return objects;
+	}
+
+	@Test
+	public void latestWins() throws Exception {
+		stuck(1);
+		outbox.offer(false, 2, "2");
+		outbox.offer(false, 3, "3");
+		outbox.offer(false, 4, "4");
+		assertEquals(2, outbox.getDropped());
+
+		Object[] objects = read(2);
+		assertEquals(stuckSize, ((byte[]) objects[0]).length);
+		assertEquals("4", objects[1]);
+		assertFalse(connection.socket.isClosed());
+	}
+
+	@Test
+	public void backloggedIsDisconnected() throws Exception {
+		final Config config = (Config) DI.get(Config.class);
+		final long sendBacklogTimeout = config.sendBacklogTimeout;
+		config.sendBacklogTimeout = 200;
+		try {
+			stuck(1);
+			outbox.offer(false, 2, "2");
+			assertFalse(connection.socket.isClosed());
+
+			Thread.sleep(2 * config.sendBacklogTimeout);
+			outbox.offer(false, 3, "3");
+			assertTrue(connection.socket.isClosed());
+		} finally {
+			config.sendBacklogTimeout = sendBacklogTimeout;
+		}
+	}
+
+	@Test
+	public void olderIsRefused() throws Exception {
+		stuck(1);
+		outbox.offer(false, 3, "3");
+		outbox.offer(false, 2, "2");
+		assertEquals(1, outbox.getDropped());
+
+		Object[] objects = read(2);
+		assertEquals("3", objects[1]);
+
+		// already written, still older
+		outbox.offer(false, 2, "2");
+		outbox.offer(false, 4, "4");
+		assertEquals(2, outbox.getDropped());
+		assertEquals("4", read(1)[0]);
+	}
+}
@@ -0,0 +1,43 @@
+package test.network;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import network.TokenBucket;
+
+public class TokenBucketTest {
+	@Test
+	public void tryTake() {
+		TokenBucket tokenBucket = new TokenBucket(100, 3, 0);
+
+		// burst
+		assertTrue(tokenBucket.tryTake(0));
+		assertTrue(tokenBucket.tryTake(0));
+		assertTrue(tokenBucket.tryTake(0));
+		assertFalse(tokenBucket.tryTake(0));
+
+		// a token every 10 ms
+		assertFalse(tokenBucket.tryTake(5));
+		assertTrue(tokenBucket.tryTake(10));
+		assertFalse(tokenBucket.tryTake(10));
+
+		// never more than burst
+		assertTrue(tokenBucket.tryTake(1000));
+		assertTrue(tokenBucket.tryTake(1000));
+		assertTrue(tokenBucket.tryTake(1000));
+		assertFalse(tokenBucket.tryTake(1000));
+	}
+
+	@Test
+	public void getWait() {
+		TokenBucket tokenBucket = new TokenBucket(100, 1, 0);
+		assertEquals(0, tokenBucket.getWait(0));
+		assertTrue(tokenBucket.tryTake(0));
+		assertEquals(10, tokenBucket.getWait(0));
+		assertEquals(4, tokenBucket.getWait(6));
+		assertTrue(tokenBucket.tryTake(10));
+	}
+}
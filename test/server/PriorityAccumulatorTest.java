@@ -0,0 +1,158 @@
+package test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Config;
+import helper.Position;
+import server.PriorityAccumulator;
+import world.element.WorldElement;
+import world.element.movable.Player;
+import world.element.unmovable.Box;
+
+public class PriorityAccumulatorTest {
+	// bits of an element
+	private static final long size = 48;
+	private static final ToLongFunction<WorldElement> sizes = worldElement -> size;
+
+	private static Config config;
+	private static int snapshotBudget;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+		snapshotBudget = config.snapshotBudget;
+		// player and 2 others
+		config.snapshotBudget = (int) (3 * size / Byte.SIZE);
+	}
+
+	@AfterAll
+	public static void afterAll() {
+		config.snapshotBudget = snapshotBudget;
+	}
+
+	@Test
+	public void everyElementIsSent() {
+		Player player = new Player();
+		List<WorldElement> worldElements = new ArrayList<>();
+		worldElements.add(player);
+		for (int i = 0; i < 10; i++) {
+			Box box = new Box();
+			box.position = new Position(0, i * config.squaresize);
+			worldElements.add(box);
+		}
+
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		Set<WorldElement> sent = new HashSet<>();
+		for (int tick = 0; tick < 5; tick++) {
+			Set<WorldElement> selected = priorityAccumulator.select(worldElements, player, tick, sizes);
+			assertEquals(3, selected.size());
+			assertTrue(selected.contains(player));
+			sent.addAll(selected);
+		}
+		// new ones first: all got there in 5 ticks
+		assertEquals(worldElements.size(), sent.size());
+
+		// far ones are not starved by near ones
+		Box far = (Box) worldElements.get(worldElements.size() - 1);
+		boolean farSent = false;
+		for (int tick = 0; tick < 100 && !farSent; tick++) {
+			farSent = priorityAccumulator.select(worldElements, player, 5 + tick, sizes).contains(far);
+		}
+		assertTrue(farSent);
+	}
+
+	private static List<WorldElement> boxes(int count) {
+		List<WorldElement> worldElements = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Box box = new Box();
+			box.position = new Position(0, i * config.squaresize);
+			worldElements.add(box);
+		}
+		return worldElements;
+	}
+
+	@Test
+	public void lostIsResent() {
+		List<WorldElement> worldElements = boxes(9);
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		Set<WorldElement> first = priorityAccumulator.select(worldElements, null, 1, sizes);
+		priorityAccumulator.select(worldElements, null, 2, sizes);
+
+		// 1 was lost (e.g. replaced in the Outbox), 2 arrived
+		priorityAccumulator.acknowledge(2, 0);
+		assertEquals(first, priorityAccumulator.select(worldElements, null, 3, sizes));
+	}
+
+	@Test
+	public void deliveredIsNotResent() {
+		List<WorldElement> worldElements = boxes(9);
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		Set<WorldElement> sent = new HashSet<>(priorityAccumulator.select(worldElements, null, 1, sizes));
+		sent.addAll(priorityAccumulator.select(worldElements, null, 2, sizes));
+
+		priorityAccumulator.acknowledge(2, 1);
+		// the ones never sent come first
+		Set<WorldElement> third = priorityAccumulator.select(worldElements, null, 3, sizes);
+		for (WorldElement worldElement : third) {
+			assertTrue(!sent.contains(worldElement));
+		}
+	}
+
+	@Test
+	public void unacknowledgedIsKept() {
+		List<WorldElement> worldElements = boxes(9);
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		priorityAccumulator.select(worldElements, null, 1, sizes);
+		Set<WorldElement> second = priorityAccumulator.select(worldElements, null, 2, sizes);
+
+		// nothing is known about 2 yet
+		priorityAccumulator.acknowledge(1, 0);
+		priorityAccumulator.select(worldElements, null, 3, sizes);
+		// it turns out to be lost
+		priorityAccumulator.acknowledge(3, 0);
+		assertEquals(second, priorityAccumulator.select(worldElements, null, 4, sizes));
+	}
+
+	@Test
+	public void budgetIsSpentBySize() {
+		List<WorldElement> worldElements = boxes(9);
+		WorldElement big = worldElements.get(0);
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		Set<WorldElement> selected = priorityAccumulator.select(worldElements, null, 1,
+				worldElement -> worldElement == big ? 2 * size : size);
+		assertTrue(selected.contains(big));
+		assertEquals(2, selected.size());
+	}
+
+	@Test
+	public void unchangedDeliveredIsNotResent() {
+		List<WorldElement> worldElements = boxes(3);
+		PriorityAccumulator priorityAccumulator = new PriorityAccumulator();
+		assertEquals(3, priorityAccumulator.select(worldElements, null, 1, sizes).size());
+		priorityAccumulator.acknowledge(1, 0);
+
+		// no priority is accumulated while they stay the same
+		for (int tick = 2; tick < 100; tick++) {
+			assertTrue(priorityAccumulator.select(worldElements, null, tick, sizes).isEmpty());
+		}
+
+		// a changed one is a new copy
+		WorldElement changed = worldElements.get(1).copy();
+		changed.position = new Position(config.squaresize, 0);
+		worldElements.set(1, changed);
+		assertEquals(Set.of(changed), priorityAccumulator.select(worldElements, null, 100, sizes));
+	}
+}
@@ -0,0 +1,117 @@
+package test.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import di.DI;
+import helper.Config;
+import network.Connect;
+import network.Network.Connection;
+import network.Resume;
+import server.Server;
+import user.User;
+
+public class ServerTest {
+	private static Config config;
+	private long resumeGrace;
+	private double enemyRatio;
+	private Server server;
+
+	@BeforeAll
+	public static void beforeAll() {
+		DI.init(Config.defaultConfigFileName);
+		config = (Config) DI.get(Config.class);
+	}
+
+	@BeforeEach
+	public void beforeEach() throws Exception {
+		resumeGrace = config.resumeGrace;
+		enemyRatio = config.enemyRatio;
+		// nothing can kill the player while it is away
+		config.enemyRatio = 0;
+		config.resumeGrace = 300;
+		server = new Server(Config.defaultPort);
+	}
+
+	@AfterEach
+	public void afterEach() throws Exception {
+		server.close();
+		config.resumeGrace = resumeGrace;
+		config.enemyRatio = enemyRatio;
+	}
+
+	/**
+	 * @formatter:off
+	 * Connects and sends hello as the first handshake message
+	 * @param connect
+	 * @param hello
+	 * @return user sent back, null if the server rejected the handshake
+	 * @formatter:on
+	 */
+	private static User handshake(final Connect connect, final Object hello) {
+		final User[] user = new User[1];
+		connect.connect((final Connection connection) -> {
+			try {
+				connect.send(hello);
+				user[0] = (User) connect.receive();
+				connect.receive();
+				return true;
+			} catch (ClassNotFoundException | IOException e) {
+				return false;
+			}
+		}, (final Object object) -> {
+		}, Config.defaultIP, Config.defaultPort);
+		return user[0];
+	}
+
+	@Test
+	public void resumeWithinGrace() throws Exception {
+		Connect connect = new Connect();
+		User user = handshake(connect, "tester");
+		assertNotNull(user);
+		connect.close();
+
+		Connect resumed = new Connect();
+		User userResumed = handshake(resumed, new Resume(user.auth, user.name));
+		assertEquals(user.auth, userResumed.auth);
+		assertEquals(user.name, userResumed.name);
+		resumed.close();
+	}
+
+	@Test
+	public void resumeAfterGrace() throws Exception {
+		Connect connect = new Connect();
+		User user = handshake(connect, "tester");
+		connect.close();
+		// removed by a tick after the grace
+		Thread.sleep(3 * config.resumeGrace);
+
+		Connect resumed = new Connect();
+		User userResumed = handshake(resumed, new Resume(user.auth, user.name));
+		// joined as new user, the name is free again
+		assertNotEquals(user.auth, userResumed.auth);
+		assertEquals(user.name, userResumed.name);
+		resumed.close();
+	}
+
+	@Test
+	public void invalidHello() throws Exception {
+		// rejected connections are closed by connect
+		assertNull(handshake(new Connect(), 5));
+		assertNull(handshake(new Connect(), new Resume(null, null)));
+
+		// server still accepts others
+		Connect connect = new Connect();
+		assertNotNull(handshake(connect, "tester"));
+		connect.close();
+	}
+}
@@ -0,0 +1,95 @@
+package test.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import user.InputMailbox;
+
+public class InputMailboxTest {
+	@Test
+	public void order() {
+		InputMailbox inputMailbox = new InputMailbox(4);
+		boolean[] keys = new boolean[] { true, false };
+		inputMailbox.publish(keys, 0);
+		keys[0] = false;
+		inputMailbox.publish(keys, 1);
+
+		assertTrue(inputMailbox.poll().keys[0]);
+		assertEquals(false, inputMailbox.poll().keys[0]);
+		assertNull(inputMailbox.poll());
+	}
+
+	@Test
+	public void skipAhead() {
+		InputMailbox inputMailbox = new InputMailbox(8);
+		for (int i = 0; i < 2; i++) {
+			inputMailbox.publish(new boolean[5], i);
+		}
+		// one arrived early, it waits for the next tick
+		assertEquals(0, inputMailbox.poll().sequence);
+		for (int i = 2; i < 5; i++) {
+			inputMailbox.publish(new boolean[5], i);
+		}
+		// backlog, only the newest matters
+		assertEquals(4, inputMailbox.poll().sequence);
+		assertNull(inputMailbox.poll());
+	}
+
+	@Test
+	public void concurrentPublishersKeepOrder() throws Exception {
+		InputMailbox inputMailbox = new InputMailbox(1 << 20);
+		AtomicLong sequence = new AtomicLong();
+		Runnable publisher = () -> {
+			for (int i = 0; i < 100000; i++) {
+				inputMailbox.publish(new boolean[5], sequence.incrementAndGet());
+			}
+		};
+		Thread first = new Thread(publisher);
+		Thread second = new Thread(publisher);
+		first.start();
+		second.start();
+		long last = -1;
+		while (first.isAlive() || second.isAlive()) {
+			InputMailbox.Input input = inputMailbox.poll();
+			if (input != null) {
+				assertTrue(input.sequence > last);
+				last = input.sequence;
+			}
+		}
+		first.join();
+		second.join();
+	}
+
+	@Test
+	public void dropOldest() {
+		InputMailbox inputMailbox = new InputMailbox(2);
+		for (int i = 0; i < 5; i++) {
+			boolean[] keys = new boolean[5];
+			keys[i] = true;
+			inputMailbox.publish(keys, i);
+		}
+
+		assertTrue(inputMailbox.poll().keys[3]);
+		assertTrue(inputMailbox.poll().keys[4]);
+		assertNull(inputMailbox.poll());
+	}
+
+	@Test
+	public void dropStale() {
+		InputMailbox inputMailbox = new InputMailbox(4);
+		assertTrue(inputMailbox.publish(new boolean[5], 3));
+		assertFalse(inputMailbox.publish(new boolean[5], 3));
+		assertFalse(inputMailbox.publish(new boolean[5], 2));
+		assertTrue(inputMailbox.publish(new boolean[5], 4));
+
+		assertEquals(3, inputMailbox.poll().sequence);
+		assertEquals(4, inputMailbox.poll().sequence);
+		assertNull(inputMailbox.poll());
+	}
+}
@@ -0,0 +1,55 @@
+package test.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import helper.Auth;
+import user.User;
+import user.UserManager;
+
+public class UserManagerTest {
+	private User createUser(UserManager<User> userManager, String name) {
+		User user = new User();
+		user.name = userManager.uniqueName(name);
+		user.auth = new Auth(10);
+		userManager.add(user);
+		return user;
+	}
+
+	@Test
+	public void uniqueName() {
+		UserManager<User> userManager = new UserManager<>(user -> user.name);
+		assertEquals("player", createUser(userManager, "player").name);
+		assertEquals("player1", createUser(userManager, "player").name);
+		assertEquals("player2", createUser(userManager, "player").name);
+
+		User user = userManager.findByName("player1");
+		userManager.remove(user);
+		assertEquals("player3", createUser(userManager, "player").name);
+		assertEquals("player1", userManager.uniqueName("player1"));
+	}
+
+	@Test
+	public void find() {
+		UserManager<User> userManager = new UserManager<>(user -> user.name);
+		User user = createUser(userManager, "foo");
+		createUser(userManager, "bar");
+
+		assertEquals(user, userManager.findByAuth(user.auth));
+		assertNull(userManager.findByAuth(new Auth(10)));
+		assertEquals(user, userManager.findByConnection("foo"));
+
+		assertFalse(userManager.rename(user, "bar"));
+		assertTrue(userManager.rename(user, "baz"));
+		assertNull(userManager.findByName("foo"));
+		assertEquals(user, userManager.findByName("baz"));
+
+		userManager.remove(user.auth);
+		assertNull(userManager.findByAuth(user.auth));
+		assertEquals(1, userManager.getList().size());
+	}
+}
@@ -0,0 +1,41 @@
+package test.world.element;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.awt.Image;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import world.element.AnimationStore;
+
+public class AnimationStoreTest {
+	@Test
+	public void concurrentGet() throws Exception {
+		AnimationStore animationStore = new AnimationStore();
+		ExecutorService executorService = Executors.newFixedThreadPool(8);
+		Callable<List<Image>> get = () -> animationStore.get("resource/unmovable/bomb");
+		List<Future<List<Image>>> futures = executorService.invokeAll(Collections.nCopies(64, get));
+		List<Image> first = futures.get(0).get();
+		for (Future<List<Image>> future : futures) {
+			// loaded once
+			assertSame(first, future.get());
+		}
+		assertEquals(0, animationStore.get("resource/missing").size());
+		executorService.shutdown();
+	}
+
+	@Test
+	public void onlyNumberedFrames() {
+		AnimationStore animationStore = new AnimationStore();
+		// wall has its original next to its frame
+		assertEquals(1, animationStore.get("resource/unmovable/wall").size());
+		assertEquals(7, animationStore.get("resource/unmovable/exit").size());
+	}
+}
@@ -0,0 +1,114 @@
+package user;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @formatter:off
+ * Bounded lock-free buffer of key states published by receive threads and consumed by the tick
+ * When full the oldest key state is dropped
+ * Key states not newer than the last published one are ignored (datagrams can be reordered or repeated)
+ * If a backlog builds up (client ticks slightly faster than server) the tick skips ahead to the newest one
+ * The waiting inputs and the last sequence are an immutable State replaced by compare and set,
+ * so checking the sequence and queueing are one step and concurrent publishers can not reorder inputs
+ * Copying it is cheap as the capacity is small (Config.inputMailboxSize)
+ * Thread safe, never blocks
+ * @formatter:on
+ */
+public class InputMailbox {
+	// inputs which may wait for the next ticks (arrived together because of jitter) before skipping ahead
+	private static final int waitingMax = 1;
+	private static final Input[] empty = new Input[0];
+
+	/**
+	 * Key state with the sequence number given by the client
+	 */
+	public static class Input {
+		public final boolean[] keys;
+		public final long sequence;
+
+		public Input(final boolean[] keys, final long sequence) {
+			this.keys = keys;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * Inputs waiting and the sequence of the last published one, immutable
+	 */
+	private static class State {
+		// oldest first, ordered by sequence
+		public final Input[] inputs;
+		public final long sequenceLast;
+
+		public State(final Input[] inputs, final long sequenceLast) {
+			this.inputs = inputs;
+			this.sequenceLast = sequenceLast;
+		}
+	}
+
+	private final AtomicReference<State> state = new AtomicReference<>(new State(empty, -1));
+	private final int capacity;
+
+	public InputMailbox(final int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * @formatter:off
+	 * Publishes a copy of keys
+	 * @param keys
+	 * @param sequence
+	 * @return false if an input with at least this sequence was already published
+	 * @formatter:on
+	 */
+	public boolean publish(final boolean[] keys, final long sequence) {
+		final Input input = new Input(keys.clone(), sequence);
+		while (true) {
+			final State current = state.get();
+			if (sequence <= current.sequenceLast) {
+				return false;
+			}
+
+			// oldest are dropped when full
+			final int kept = Math.min(current.inputs.length, capacity - 1);
+			final Input[] inputs = new Input[kept + 1];
+			System.arraycopy(current.inputs, current.inputs.length - kept, inputs, 0, kept);
+			inputs[kept] = input;
+			if (state.compareAndSet(current, new State(inputs, sequence))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Takes the oldest published input
+	 * If more than waitingMax would still be waiting after it, takes the newest and drops the others
+	 * so a drift between the client and server tick does not turn into lasting input lag
+	 * @return null if there's none
+	 * @formatter:on
+	 */
+	public Input poll() {
+		while (true) {
+			final State current = state.get();
+			final int length = current.inputs.length;
+			if (length == 0) {
+				return null;
+			}
+
+			final Input input;
+			final Input[] inputs;
+			if (length > waitingMax + 1) {
+				input = current.inputs[length - 1];
+				inputs = empty;
+			} else {
+				input = current.inputs[0];
+				inputs = Arrays.copyOfRange(current.inputs, 1, length);
+			}
+			if (state.compareAndSet(current, new State(inputs, current.sequenceLast))) {
+				return input;
+			}
+		}
+	}
+}
@@ -7,9 +7,13 @@ import helper.Key;
 
 public class User implements Serializable {
 	public boolean[] keys = new boolean[Key.KeyType.KeyLength];
+	// sequence number of keys, increased by client for every input
+	public long sequence;
 	public String name;
 	public Auth auth;
 	public State state;
+	// keys received but not yet applied, only used on server
+	public transient InputMailbox input;
 
 	public enum State {
 		Playing, Dead, Won,
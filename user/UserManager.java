@@ -1,38 +1,63 @@
 package user;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import helper.Auth;
-import world.element.WorldElement;
+import world.element.movable.Movable;
 
 /**
- * Manages the WorldElements controlled or created by a User
+ * @formatter:off
+ * Manages Users and the player controlled by them
+ * Users are indexed by auth, name and connection so every lookup is O(1)
+ * Lookups are safe without the model lock, modifications must be done with lock closed
+ * @formatter:on
  */
 public class UserManager<U extends User> {
-	private Map<U, List<WorldElement>> userPossession = new HashMap<>();
+	private final Map<Auth, U> userByAuth = new ConcurrentHashMap<>();
+	private final Map<String, U> userByName = new ConcurrentHashMap<>();
+	private final Map<Object, U> userByConnection = new ConcurrentHashMap<>();
+	private final Map<U, Movable> playerByUser = new ConcurrentHashMap<>();
+	// next suffix to try for a name, makes unique name generation amortized O(1)
+	private final Map<String, Integer> nameSuffixNext = new ConcurrentHashMap<>();
+	private final Function<U, Object> connectionOf;
+
+	/**
+	 * @formatter:off
+	 * @param connectionOf returns the connection of a user, used as index key
+	 * @formatter:on
+	 */
+	public UserManager(final Function<U, Object> connectionOf) {
+		this.connectionOf = connectionOf;
+	}
 
 	/**
 	 * @formatter:off
 	 * Adds user
+	 * Name and auth must be unique
 	 * @param user
 	 * @formatter:on
 	 */
 	public void add(final U user) {
-		userPossession.put(user, new ArrayList<>());
+		userByAuth.put(user.auth, user);
+		userByName.put(user.name, user);
+		userByConnection.put(connectionOf.apply(user), user);
 	}
 
 	/**
 	 * @formatter:off
-	 * Removes user
+	 * Removes user and its player handle
 	 * @param user
 	 * @formatter:on
 	 */
 	public void remove(final U user) {
-		userPossession.remove(user);
+		userByAuth.remove(user.auth, user);
+		userByName.remove(user.name, user);
+		userByConnection.remove(connectionOf.apply(user), user);
+		playerByUser.remove(user);
 	}
 
 	/**
@@ -43,7 +68,9 @@ public class UserManager<U extends User> {
 	 */
 	public void remove(final Auth auth) {
 		final U user = findByAuth(auth);
-		remove(user);
+		if (user != null) {
+			remove(user);
+		}
 	}
 
 	/**
@@ -54,12 +81,7 @@ public class UserManager<U extends User> {
 	 * @formatter:on
 	 */
 	public U findByAuth(final Auth auth) {
-		for (final U user : userPossession.keySet()) {
-			if (user.auth.equals(auth)) {
-				return user;
-			}
-		}
-		return null;
+		return userByAuth.get(auth);
 	}
 
 	/**
@@ -70,15 +92,79 @@ public class UserManager<U extends User> {
 	 * @formatter:on
 	 */
 	public U findByName(final String name) {
-		final Optional<U> user = userPossession.keySet().stream().filter((final U userServerOther) -> {
-			return userServerOther.name.equals(name);
-		}).findFirst();
-
-		if (user.isEmpty()) {
-			return null;
-		} else {
-			return user.get();
+		return userByName.get(name);
+	}
+
+	/**
+	 * @formatter:off
+	 * Finds user by its connection
+	 * @param connection
+	 * @return
+	 * @formatter:on
+	 */
+	public U findByConnection(final Object connection) {
+		return userByConnection.get(connection);
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns name if no user has it, otherwise name with the first free numeric suffix
+	 * @param name
+	 * @return
+	 * @formatter:on
+	 */
+	public String uniqueName(final String name) {
+		if (!userByName.containsKey(name)) {
+			return name;
+		}
+
+		int nameSuffix = nameSuffixNext.getOrDefault(name, 1);
+		while (userByName.containsKey(name + nameSuffix)) {
+			nameSuffix++;
 		}
+		nameSuffixNext.put(name, nameSuffix + 1);
+		return name + nameSuffix;
+	}
+
+	/**
+	 * @formatter:off
+	 * Changes the name of user
+	 * @param user
+	 * @param name
+	 * @return false if name is used by another user
+	 * @formatter:on
+	 */
+	public boolean rename(final U user, final String name) {
+		if (userByName.containsKey(name)) {
+			return false;
+		}
+
+		userByName.remove(user.name, user);
+		user.name = name;
+		userByName.put(name, user);
+		return true;
+	}
+
+	/**
+	 * @formatter:off
+	 * Sets the player controlled by user
+	 * @param user
+	 * @param player
+	 * @formatter:on
+	 */
+	public void setPlayer(final U user, final Movable player) {
+		playerByUser.put(user, player);
+	}
+
+	/**
+	 * @formatter:off
+	 * Returns the player controlled by user
+	 * @param user
+	 * @return null if user has no player
+	 * @formatter:on
+	 */
+	public Movable getPlayer(final U user) {
+		return playerByUser.get(user);
 	}
 
 	/**
@@ -88,7 +174,7 @@ public class UserManager<U extends User> {
 	 * @formatter:on
 	 */
 	public List<U> getList() {
-		return new ArrayList<>(userPossession.keySet());
+		return new ArrayList<>(userByAuth.values());
 	}
 
 	/**
@@ -97,6 +183,10 @@ public class UserManager<U extends User> {
 	 * @formatter:on
 	 */
 	public void clear() {
-		userPossession.clear();
+		userByAuth.clear();
+		userByName.clear();
+		userByConnection.clear();
+		playerByUser.clear();
+		nameSuffixNext.clear();
 	}
 }
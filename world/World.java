@@ -17,4 +17,20 @@ public abstract class World implements Serializable {
 	public int width;
 
 	public Unmovable exit;
+
+	/**
+	 * @formatter:off
+	 * Finds movable by id
+	 * @param id
+	 * @return null if it is not in this world
+	 * @formatter:on
+	 */
+	public Movable findMovable(final int id) {
+		for (final Movable movable : movables) {
+			if (movable.id == id) {
+				return movable;
+			}
+		}
+		return null;
+	}
 }
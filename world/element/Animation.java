@@ -5,7 +5,7 @@ import java.io.Serializable;
 
 import di.DI;
 
-public class Animation implements Serializable {
+public class Animation implements Serializable, Cloneable {
 	private static AnimationStore animationStore = (AnimationStore) DI.get(AnimationStore.class);
 
 	// Current image id to be displayed
@@ -43,6 +43,40 @@ public class Animation implements Serializable {
 		stateDelayTick = 0;
 	}
 
+	/**
+	 * @formatter:off
+	 * Copy whose state advances independently from this one
+	 * @return
+	 * @formatter:on
+	 */
+	public Animation copy() {
+		try {
+			return (Animation) clone();
+		} catch (final CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+	}
+
+	/**
+	 * @formatter:off
+	 * Current image id
+	 * @return
+	 * @formatter:on
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * @formatter:off
+	 * Sets current image id, used when restoring an element
+	 * @param state
+	 * @formatter:on
+	 */
+	public void setState(final long state) {
+		this.state = state;
+	}
+
 	public Image getImage() {
 		return animationStore.get(path).get((int) state);
 	}
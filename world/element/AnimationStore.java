@@ -4,36 +4,45 @@ import java.awt.Image;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.swing.ImageIcon;
 
+/**
+ * @formatter:off
+ * Frames of animations by path, loaded when first asked for
+ * Thread safe: elements are created by the receive threads and the renderer at the same time
+ * @formatter:on
+ */
 public class AnimationStore {
-	private final Map<String, List<Image>> framesByPath = new HashMap<>();
+	private final Map<String, List<Image>> framesByPath = new ConcurrentHashMap<>();
 
 	/**
 	 * @formatter:off
-	 * Adds image path to store
+	 * Loads frames of an animation: 0.png, 1.png... in this order
+	 * Other files (e.g. the original the frames were cut from) are not frames
 	 * @param path
+	 * @return empty if path does not exist
 	 * @formatter:on
 	 */
-	private void add(final String path) {
+	private static List<Image> load(final String path) {
 		try {
 			final File file = new File(path);
-			final File[] frameFiles = file.listFiles();
 			// when test do not fail because of wrong path
-			if (frameFiles == null) {
-				return;
+			if (!file.isDirectory()) {
+				return Collections.emptyList();
 			}
 
 			final List<Image> frames = new ArrayList<>();
-			for (final File frame : frameFiles) {
+			File frame;
+			while ((frame = new File(file, frames.size() + ".png")).isFile()) {
 				final Image image = new ImageIcon(frame.getCanonicalPath()).getImage();
 				frames.add(image);
 			}
-			framesByPath.put(path, frames);
+			return Collections.unmodifiableList(frames);
 		} catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -47,13 +56,6 @@ public class AnimationStore {
 	 * @formatter:on
 	 */
 	public List<Image> get(final String path) {
-		if (!framesByPath.containsKey(path)) {
-			add(path);
-			// when test do not fail because of wrong path
-			if (framesByPath.size() == 0) {
-				return new ArrayList<Image>();
-			}
-		}
-		return framesByPath.get(path);
+		return framesByPath.computeIfAbsent(path, AnimationStore::load);
 	}
 }
@@ -1,11 +1,16 @@
 package world.element;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import helper.Position;
 import server.WorldServer;
 
-public abstract class WorldElement implements Serializable {
+public abstract class WorldElement implements Serializable, Cloneable {
+	private static final AtomicInteger idNext = new AtomicInteger();
+
+	// unique among elements created in this process, kept by copies
+	public int id = idNext.getAndIncrement();
 	public Position position = new Position(0, 0);
 	public Animation animation;
 	public long createdTick = -1;
@@ -32,4 +37,36 @@ public abstract class WorldElement implements Serializable {
 
 	public void nextState(final WorldServer worldServer, final WorldServer nextWorldServer, final long tickCount) {
 	}
+
+	/**
+	 * @formatter:off
+	 * Creates copy to be published in a world snapshot
+	 * Mutable parts are copied, references to live objects are replaced by what clients may see
+	 * @return
+	 * @formatter:on
+	 */
+	public WorldElement copy() {
+		final WorldElement worldElement;
+		try {
+			worldElement = (WorldElement) clone();
+		} catch (final CloneNotSupportedException e) {
+			throw new Error(e);
+		}
+		worldElement.position = new Position(position);
+		worldElement.animation = animation.copy();
+		return worldElement;
+	}
+
+	/**
+	 * @formatter:off
+	 * Tells whether copy still shows the state of this element so the next snapshot can share it
+	 * Animation is compared by its displayed image only
+	 * @param copy created by copy()
+	 * @return
+	 * @formatter:on
+	 */
+	public boolean isCopyCurrent(final WorldElement copy) {
+		return position.equals(copy.position) && animation.getState() == copy.animation.getState()
+				&& createdTick == copy.createdTick && destroyTick == copy.destroyTick;
+	}
 }
@@ -7,6 +7,7 @@ import helper.Config;
 import helper.Key;
 import helper.Position;
 import server.WorldServer;
+import world.World;
 import world.element.Animation;
 
 public class Enemy extends Movable {
@@ -39,9 +40,9 @@ public class Enemy extends Movable {
 	 * If could not move change direction
 	 */
 	@Override
-	public void applyMovement(WorldServer worldServer, WorldServer nextWorldServer, long tickCount) {
+	public void applyMovement(final World world, final World nextWorld, final long tickCount) {
 		Position positionCurrent = position;
-		super.applyMovement(worldServer, nextWorldServer, tickCount);
+		super.applyMovement(world, nextWorld, tickCount);
 		if (position.equals(positionCurrent)) {
 			randomKeys();
 		}
@@ -1,6 +1,8 @@
 package world.element.movable;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 import di.DI;
 import engine.Collision;
@@ -9,6 +11,7 @@ import helper.Key;
 import helper.Position;
 import server.WorldServer;
 import user.User;
+import world.World;
 import world.element.Animation;
 import world.element.WorldElement;
 import world.element.unmovable.Bomb;
@@ -23,22 +26,50 @@ public abstract class Movable extends WorldElement {
 	public int bombCount = 0;
 	public User owner;
 	public boolean[] keys = new boolean[Key.KeyType.KeyLength];
+	// sequence of the last input applied to keys, client reconciles its prediction with it
+	public long inputSequence = -1;
 
 	public Movable(final Animation animation) {
 		super(animation);
 	}
 
+	/**
+	 * @formatter:off
+	 * Only the name of the owner is published, the user holds its connection and auth
+	 * @formatter:on
+	 */
+	@Override
+	public Movable copy() {
+		final Movable movable = (Movable) super.copy();
+		movable.keys = keys.clone();
+		if (owner != null) {
+			movable.owner = new User();
+			movable.owner.name = owner.name;
+		}
+		return movable;
+	}
+
+	@Override
+	public boolean isCopyCurrent(final WorldElement copy) {
+		final Movable movable = (Movable) copy;
+		return super.isCopyCurrent(copy) && velocity == movable.velocity && bombCount == movable.bombCount
+				&& Arrays.equals(keys, movable.keys) && inputSequence == movable.inputSequence
+				&& (owner == null) == (movable.owner == null)
+				&& (owner == null || Objects.equals(owner.name, movable.owner.name));
+	}
+
 	/**
 	 * @formatter:off
 	 * Moves based on keys array
 	 * Takes collision into account
 	 * Handles moving out of bomb
-	 * @param worldServer
-	 * @param nextWorldServer
+	 * Only depends on World so client can predict with it
+	 * @param world
+	 * @param nextWorld
 	 * @param tickCount
 	 * @formatter:on
 	 */
-	public void applyMovement(final WorldServer worldServer, final WorldServer nextWorldServer, final long tickCount) {
+	public void applyMovement(final World world, final World nextWorld, final long tickCount) {
 		Position positionNew = new Position(position.y, position.x);
 		if (keys[Key.KeyType.KeyUp.getValue()]) {
 			positionNew.y -= velocity;
@@ -54,10 +85,10 @@ public abstract class Movable extends WorldElement {
 		}
 
 		// collision
-		position = Collision.getValidPositionOnLine(worldServer, position, positionNew, this,
+		position = Collision.getValidPositionOnLine(world, position, positionNew, this,
 				(movableRelative, unmovable) -> {
 					return unmovable instanceof Wall || unmovable instanceof Box || (unmovable instanceof Bomb
-							&& (unmovable.owner != movableRelative || unmovable.movedOutOfBomb));
+							&& (unmovable.ownerId != movableRelative.id || unmovable.movedOutOfBomb));
 				}, (movableRelative, movable) -> {
 					// Player is solid for Player
 					// Enemy is not solid for Player
@@ -70,8 +101,8 @@ public abstract class Movable extends WorldElement {
 		// moved out from a bomb with !bombOut
 		// in one move it is not possible that it moved out from bomb then moved back
 		// again
-		for (final Unmovable unmovable : worldServer.unmovables) {
-			if (unmovable instanceof Bomb && unmovable.owner == this && !unmovable.movedOutOfBomb
+		for (final Unmovable unmovable : world.unmovables) {
+			if (unmovable instanceof Bomb && unmovable.ownerId == id && !unmovable.movedOutOfBomb
 					&& !Collision.doCollide(position, unmovable.position)) {
 				unmovable.movedOutOfBomb = true;
 			}
@@ -124,7 +155,7 @@ public abstract class Movable extends WorldElement {
 		bomb.position = positionNew;
 		bomb.velocity = 0;
 		bomb.movedOutOfBomb = false;
-		bomb.owner = this;
+		bomb.ownerId = id;
 		bomb.animation.stateDelayTickEnd = 15;
 		nextWorldServer.unmovables.add(bomb);
 
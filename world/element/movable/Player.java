@@ -9,8 +9,6 @@ import world.element.Animation;
 import world.element.WorldElement;
 
 public class Player extends Movable {
-	public boolean you = false;
-
 	public Player() {
 		super(new Animation(10, "resource/movable/player"));
 	}
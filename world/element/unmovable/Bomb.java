@@ -8,6 +8,7 @@ import helper.Config;
 import helper.Position;
 import server.WorldServer;
 import world.element.Animation;
+import world.element.movable.Movable;
 
 public class Bomb extends Unmovable {
 	private static Config config = (Config) DI.get(Config.class);
@@ -44,7 +45,7 @@ public class Bomb extends Unmovable {
 				fire.movedOutOfBomb = true;
 				fire.createdTick = tickCount;
 				fire.destroyTick = tickCount + (long) (0.25 * config.tickSecond);
-				fire.owner = owner;
+				fire.ownerId = ownerId;
 				fire.position = positionFire;
 				fire.animation.stateDelayTickEnd = 2;
 				fire.velocity = 0;
@@ -63,6 +64,7 @@ public class Bomb extends Unmovable {
 		}
 
 		// give back bomb to user
+		final Movable owner = nextWorldServer.findMovable(ownerId);
 		if (owner != null) {
 			owner.bombCount++;
 		}
@@ -2,15 +2,27 @@ package world.element.unmovable;
 
 import world.element.Animation;
 import world.element.WorldElement;
-import world.element.movable.Movable;
 
 public abstract class Unmovable extends WorldElement {
 	public int velocity;
-	public Movable owner = null;
+	// id of the movable which placed it, -1 if none
+	public int ownerId = -1;
 	// collision
 	public boolean movedOutOfBomb = true;
 
 	public Unmovable(final Animation animation) {
 		super(animation);
 	}
+
+	@Override
+	public Unmovable copy() {
+		return (Unmovable) super.copy();
+	}
+
+	@Override
+	public boolean isCopyCurrent(final WorldElement copy) {
+		final Unmovable unmovable = (Unmovable) copy;
+		return super.isCopyCurrent(copy) && velocity == unmovable.velocity
+				&& movedOutOfBomb == unmovable.movedOutOfBomb && ownerId == unmovable.ownerId;
+	}
 }